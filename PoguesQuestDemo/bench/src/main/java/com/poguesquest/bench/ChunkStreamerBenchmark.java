@@ -0,0 +1,50 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.world.ChunkStreamer;
+import com.poguesquest.world.MapGenerator;
+import com.poguesquest.world.TileMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// A fresh chunk from the seed, and the window moving one chunk with everything already generated
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChunkStreamerBenchmark {
+    private ChunkStreamer streamer;
+    private int chunk;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        streamer = new ChunkStreamer(Fixtures.SEED, 1 << 16, 1 << 16);
+    }
+
+    @TearDown
+    public void tearDown() {
+        streamer.shutdown();
+    }
+
+    @Benchmark
+    public TileMap generateChunk() {
+        MapGenerator generator = new MapGenerator(ChunkStreamer.CHUNK_TILES, ChunkStreamer.CHUNK_TILES, Fixtures.SEED + chunk++);
+        return generator.generateChunk(2);
+    }
+
+    @Benchmark
+    public boolean moveWindow() {
+        int tileX = streamer.getStartX() + (step++ & 1) * ChunkStreamer.CHUNK_TILES;
+        return streamer.update(tileX, streamer.getStartY());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.utils.Collider;
+import com.poguesquest.world.TileMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Collision probes at random spots of a small and a large map
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ColliderBenchmark {
+    private static final int PROBES = 1024;
+
+    @Param({ "200", "1000" })
+    public int size;
+
+    private TileMap map;
+    private final int[] probeX = new int[PROBES];
+    private final int[] probeY = new int[PROBES];
+    private final Collider collider = new Collider(0, 0, 25, 25);
+
+    @Setup
+    public void setUp() {
+        map = Fixtures.map(size);
+        SplittableRandom random = new SplittableRandom(Fixtures.SEED);
+        for (int i = 0; i < PROBES; i++) {
+            probeX[i] = random.nextInt(size * Fixtures.TILE_SIZE);
+            probeY[i] = random.nextInt(size * Fixtures.TILE_SIZE);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void isColliding(Blackhole blackhole) {
+        for (int i = 0; i < PROBES; i++) {
+            collider.setPosition(probeX[i], probeY[i]);
+            blackhole.consume(collider.isColliding(map, Fixtures.TILE_SIZE));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.ImageLoader;
+import com.poguesquest.entities.Guardian;
+import com.poguesquest.entities.Player;
+import com.poguesquest.utils.Camera;
+import com.poguesquest.world.MapGenerator;
+import com.poguesquest.world.TileMap;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Worlds and entities shared by the benchmark states. Everything is built from SEED,
+// so every run measures the same map and the same guardians.
+final class Fixtures {
+    static final int TILE_SIZE = 32;
+    static final long SEED = 1234;
+
+    private Fixtures() {
+    }
+
+    static Camera camera() {
+        return new Camera(800, 600, 2.0);
+    }
+
+    static Player player(Camera camera) {
+        return new Player(100 * TILE_SIZE, 100 * TILE_SIZE,
+                ImageLoader.loadCharacterSpriteSheet("Lyria", "Walk"),
+                ImageLoader.loadCharacterSpriteSheet("Lyria", "Idle"), TILE_SIZE, camera);
+    }
+
+    static TileMap map(int size) {
+        return new MapGenerator(size, size, SEED).generateMap(size / 2, size / 2);
+    }
+
+    // 0 stands for every core, and never less than two so the parallel path is taken
+    static int threads(int threads) {
+        return threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    // A generated map with its walls reset to the untyped wall value, as updateWallTypes expects
+    static TileMap rawWallMap(int size) {
+        TileMap map = map(size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (!map.isWalkable(x, y)) {
+                    map.set(x, y, TileMap.WALL);
+                }
+            }
+        }
+        return map;
+    }
+
+    // Random floor tiles as x, y pairs
+    static int[] floorTiles(TileMap map, int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[] tiles = new int[count * 2];
+        for (int i = 0; i < tiles.length; ) {
+            int tileX = random.nextInt(map.getWidth());
+            int tileY = random.nextInt(map.getHeight());
+            if (map.isWalkable(tileX, tileY)) {
+                tiles[i++] = tileX;
+                tiles[i++] = tileY;
+            }
+        }
+        return tiles;
+    }
+
+    static List<Guardian> spawnGuardians(TileMap map, Player player, int count) {
+        BufferedImage walk = ImageLoader.loadCharacterSpriteSheet("Guardian", "Walk");
+        BufferedImage idle = ImageLoader.loadCharacterSpriteSheet("Guardian", "Idle");
+        SplittableRandom random = new SplittableRandom(SEED + count);
+        List<Guardian> guardians = new ArrayList<>();
+        while (guardians.size() < count) {
+            int tileX = random.nextInt(map.getWidth());
+            int tileY = random.nextInt(map.getHeight());
+            if (map.isWalkable(tileX, tileY)) {
+                Guardian guardian = new Guardian(tileX * TILE_SIZE, tileY * TILE_SIZE, 32, 32, walk, idle, player, map, random.split());
+                guardian.setId(guardians.size());
+                guardians.add(guardian);
+            }
+        }
+        return guardians;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.entities.Guardian;
+import com.poguesquest.entities.GuardianBatch;
+import com.poguesquest.utils.SpatialHash;
+import com.poguesquest.world.FlowField;
+import com.poguesquest.world.LineOfSight;
+import com.poguesquest.world.TileMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The same tick through the two-phase batch, single-threaded and on every core
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GuardianBatchBenchmark {
+    @Param({ "1000", "10000" })
+    public int count;
+
+    @Param({ "1", "0" }) // 0 is every core
+    public int threads;
+
+    private TileMap map;
+    private List<Guardian> guardians;
+    private SpatialHash hash;
+    private FlowField flowField;
+    private LineOfSight lineOfSight;
+    private GuardianBatch batch;
+
+    @Setup
+    public void setUp() {
+        map = Fixtures.map(200);
+        hash = new SpatialHash(Guardian.SEPARATION_DISTANCE, count);
+        flowField = new FlowField(map);
+        flowField.update(100, 100);
+        lineOfSight = new LineOfSight(map);
+        lineOfSight.setTarget(100, 100);
+        batch = new GuardianBatch(Fixtures.threads(threads));
+    }
+
+    // Respawn per iteration, as in GuardianBenchmark, so each one measures the same tick
+    @Setup(Level.Iteration)
+    public void spawn() {
+        guardians = Fixtures.spawnGuardians(map, Fixtures.player(Fixtures.camera()), count);
+    }
+
+    @TearDown
+    public void tearDown() {
+        batch.shutdown();
+    }
+
+    @Benchmark
+    public int update() {
+        hash.clear();
+        for (int i = 0; i < guardians.size(); i++) {
+            Guardian guardian = guardians.get(i);
+            guardian.savePreviousPosition();
+            hash.insert(i, guardian.getX(), guardian.getY());
+        }
+        batch.update(guardians, hash, flowField, lineOfSight);
+        return guardians.get(0).getX();
+    }
+}
\ No newline at end of file
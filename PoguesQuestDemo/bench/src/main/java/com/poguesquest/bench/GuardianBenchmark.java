@@ -0,0 +1,68 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.entities.Guardian;
+import com.poguesquest.utils.SpatialHash;
+import com.poguesquest.world.FlowField;
+import com.poguesquest.world.LineOfSight;
+import com.poguesquest.world.TileMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One guardian tick on a 200x200 map, each guardian updated in turn on this thread
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GuardianBenchmark {
+    @Param({ "10", "100", "1000" })
+    public int count;
+
+    private TileMap map;
+    private List<Guardian> guardians;
+    private SpatialHash hash;
+    private FlowField flowField;
+    private LineOfSight lineOfSight;
+
+    @Setup
+    public void setUp() {
+        map = Fixtures.map(200);
+        hash = new SpatialHash(Guardian.SEPARATION_DISTANCE, count);
+        flowField = new FlowField(map);
+        flowField.update(100, 100);
+        lineOfSight = new LineOfSight(map);
+        lineOfSight.setTarget(100, 100);
+    }
+
+    // Guardians wander and chase as they tick, so every iteration starts again from the
+    // same freshly spawned guardians and player
+    @Setup(Level.Iteration)
+    public void spawn() {
+        guardians = Fixtures.spawnGuardians(map, Fixtures.player(Fixtures.camera()), count);
+    }
+
+    @Benchmark
+    public void update(Blackhole blackhole) {
+        hash.clear();
+        for (int i = 0; i < guardians.size(); i++) {
+            guardians.get(i).savePreviousPosition();
+            hash.insert(i, guardians.get(i).getX(), guardians.get(i).getY());
+        }
+        for (Guardian guardian : guardians) {
+            guardian.update(guardians, hash, flowField, lineOfSight);
+            blackhole.consume(guardian.getX());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.ImageLoader;
+import com.poguesquest.items.Gun;
+import com.poguesquest.world.TileMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// A thousand live bullets moved one tick, topped up before every op
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GunBenchmark {
+    private TileMap map;
+    private Gun gun;
+    private final SplittableRandom random = new SplittableRandom(Fixtures.SEED);
+
+    @Setup
+    public void setUp() {
+        map = Fixtures.map(200);
+        BufferedImage pistolSprite = ImageLoader.loadImage("/pistol.png");
+        gun = new Gun("Pistol", pistolSprite, pistolSprite, 10, 300, Fixtures.camera(), new SplittableRandom(Fixtures.SEED));
+    }
+
+    @Benchmark
+    public int updateBullets() {
+        while (gun.getProjectiles().size() < 1000) {
+            gun.getProjectiles().spawn(100 * Fixtures.TILE_SIZE, 100 * Fixtures.TILE_SIZE, random.nextDouble() * 2 * Math.PI);
+        }
+        gun.updateBullets(map, Fixtures.TILE_SIZE);
+        return gun.getProjectiles().size();
+    }
+}
\ No newline at end of file
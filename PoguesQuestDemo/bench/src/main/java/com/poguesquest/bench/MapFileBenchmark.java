@@ -0,0 +1,55 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.world.ChunkStreamer;
+import com.poguesquest.world.MapFile;
+import com.poguesquest.world.TileMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// A 4096x4096 map saved, and opened with one chunk read back as ChunkStreamer does
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MapFileBenchmark {
+    private TileMap map;
+    private File file;
+    private int region;
+
+    @Setup
+    public void setUp() throws IOException {
+        map = Fixtures.map(4096);
+        file = File.createTempFile("bench", ".pqm");
+        MapFile.write(file.getPath(), map, Fixtures.SEED, 2048, 2048);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        MapFile.write(file.getPath(), map, Fixtures.SEED, 2048, 2048);
+        return file.length();
+    }
+
+    @Benchmark
+    public TileMap openAndReadChunk() throws IOException {
+        MapFile opened = MapFile.open(file.getPath());
+        int tile = (region++ & 127) * ChunkStreamer.CHUNK_TILES;
+        return opened.read(tile, tile, ChunkStreamer.CHUNK_TILES, ChunkStreamer.CHUNK_TILES);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.world.MapGenerator;
+import com.poguesquest.world.TileMap;
+import com.poguesquest.world.WallGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Whole-map generation at several sizes, and the wall typing pass on its own
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MapGeneratorBenchmark {
+    @Param({ "50", "200", "1000" })
+    public int size;
+
+    private TileMap rawWalls;
+    private TileMap wallMap;
+    private WallGenerator wallGenerator;
+
+    @Setup
+    public void setUp() {
+        rawWalls = Fixtures.rawWallMap(size);
+        wallMap = new TileMap(size, size);
+        wallGenerator = new WallGenerator(size, size, wallMap);
+    }
+
+    @Benchmark
+    public TileMap generateMap() {
+        return new MapGenerator(size, size, Fixtures.SEED).generateMap(size / 2, size / 2);
+    }
+
+    // updateWallTypes rewrites walls in place, so every op starts from a fresh copy of the raw map
+    @Benchmark
+    public TileMap updateWallTypes() {
+        wallMap.copyFrom(rawWalls);
+        wallGenerator.updateWallTypes();
+        return wallMap;
+    }
+}
\ No newline at end of file
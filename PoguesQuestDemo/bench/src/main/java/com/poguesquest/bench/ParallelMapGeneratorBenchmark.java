@@ -0,0 +1,30 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.world.MapGenerator;
+import com.poguesquest.world.TileMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// The same 4096x4096 map in bands, single-threaded and on every core
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParallelMapGeneratorBenchmark {
+    @Param({ "1", "0" }) // 0 is every core
+    public int threads;
+
+    @Benchmark
+    public TileMap generateMap4096() {
+        return new MapGenerator(4096, 4096, Fixtures.SEED, Fixtures.threads(threads)).generateMap(2048, 2048);
+    }
+}
\ No newline at end of file
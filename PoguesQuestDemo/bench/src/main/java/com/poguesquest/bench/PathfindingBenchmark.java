@@ -0,0 +1,76 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.world.FlowField;
+import com.poguesquest.world.LineOfSight;
+import com.poguesquest.world.Path;
+import com.poguesquest.world.Pathfinder;
+import com.poguesquest.world.TileMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// How guardians find the player on a 200x200 map: the shared flow field, hierarchical
+// A* between random floor tiles and uncached sight rays
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PathfindingBenchmark {
+    private TileMap map;
+    private FlowField flowField;
+    private Pathfinder pathfinder;
+    private LineOfSight lineOfSight;
+    private int[] endpoints;
+    private int[] rayStarts;
+
+    @Setup
+    public void setUp() {
+        map = Fixtures.map(200);
+        flowField = new FlowField(map);
+        pathfinder = new Pathfinder(map);
+        lineOfSight = new LineOfSight(map);
+        endpoints = Fixtures.floorTiles(map, 64);
+        rayStarts = Fixtures.floorTiles(map, 1024);
+    }
+
+    // Alternate roots so every op really rebuilds
+    @Benchmark
+    public int flowFieldRebuild() {
+        flowField.update(99, 100);
+        flowField.update(100, 100);
+        return flowField.getDistance(0, 0);
+    }
+
+    @Benchmark
+    public Pathfinder pathfinderBuild() {
+        return new Pathfinder(map);
+    }
+
+    // 32 long queries, walked to the end so every segment is refined
+    @Benchmark
+    public void findPathAndWalk(Blackhole blackhole) {
+        for (int i = 0; i < endpoints.length; i += 4) {
+            Path path = pathfinder.findPath(endpoints[i], endpoints[i + 1], endpoints[i + 2], endpoints[i + 3]);
+            while (path != null && path.advance()) {
+                blackhole.consume(path);
+            }
+        }
+    }
+
+    // 1024 rays from random floor tiles to the middle of the map
+    @Benchmark
+    public void lineOfSight(Blackhole blackhole) {
+        for (int i = 0; i < rayStarts.length; i += 2) {
+            blackhole.consume(lineOfSight.isClear(rayStarts[i], rayStarts[i + 1], 100, 100));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.ImageLoader;
+import com.poguesquest.utils.Camera;
+import com.poguesquest.utils.RenderStats;
+import com.poguesquest.world.ChunkStreamer;
+import com.poguesquest.world.TileLayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+// Main.renderMap delegates to TileLayer.render, drawn here into an offscreen image,
+// once with the chunk images already baked and once baking them again
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RenderBenchmark {
+    private ChunkStreamer streamer;
+    private TileLayer tileLayer;
+    private Camera camera;
+    private final BufferedImage screen = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+    private final RenderStats stats = new RenderStats();
+
+    @Setup
+    public void setUp() {
+        streamer = new ChunkStreamer(Fixtures.SEED, 1 << 16, 1 << 16);
+        tileLayer = new TileLayer(streamer, ImageLoader.loadImage("/WallSheet.png"), Fixtures.TILE_SIZE);
+        camera = Fixtures.camera();
+        camera.centerOnPlayer(streamer.getStartX() * Fixtures.TILE_SIZE, streamer.getStartY() * Fixtures.TILE_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        streamer.shutdown();
+    }
+
+    @Benchmark
+    public int renderMapBaked() {
+        return renderMap();
+    }
+
+    @Benchmark
+    public int renderMapRebaking() {
+        tileLayer.invalidate();
+        return renderMap();
+    }
+
+    private int renderMap() {
+        Graphics2D g2d = screen.createGraphics();
+        g2d.scale(camera.getScaleFactor(), camera.getScaleFactor());
+        g2d.translate(-camera.getX(), -camera.getY());
+        stats.beginFrame();
+        tileLayer.render(g2d, camera, 1.0, stats);
+        g2d.dispose();
+        return stats.getChunksDrawn();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.entities.Guardian;
+import com.poguesquest.entities.Player;
+import com.poguesquest.utils.SaveSnapshot;
+import com.poguesquest.world.TileMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The pause a save costs the game loop: copying the player and a thousand guardians out
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SaveCaptureBenchmark {
+    private Player player;
+    private List<Guardian> guardians;
+    private final SaveSnapshot snapshot = new SaveSnapshot();
+
+    @Setup
+    public void setUp() {
+        TileMap map = Fixtures.map(200);
+        player = Fixtures.player(Fixtures.camera());
+        guardians = Fixtures.spawnGuardians(map, player, 1000);
+    }
+
+    @Benchmark
+    public SaveSnapshot capture() {
+        snapshot.begin(0, Fixtures.SEED, 200, 200);
+        player.saveTo(snapshot);
+        for (Guardian guardian : guardians) {
+            guardian.saveTo(snapshot);
+        }
+        return snapshot;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.poguesquest.bench;
+
+import com.poguesquest.world.TileMap;
+
+// Not a benchmark: prints how much memory a packed 1000x1000 TileMap saves over the old int[][].
+// Run with java -cp bench/target/benchmarks.jar com.poguesquest.bench.TileMapFootprint
+public class TileMapFootprint {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        TileMap map = Fixtures.map(1000);
+        // An int[][] row costs 4 bytes a tile plus a 16 byte array header
+        long packed = map.getMemoryBytes();
+        long unpacked = 1000L * (1000 * 4 + 16);
+        System.out.printf("TileMap 1000x1000: %d KB packed, %d KB as int[][]%n", packed / 1024, unpacked / 1024);
+    }
+}
\ No newline at end of file
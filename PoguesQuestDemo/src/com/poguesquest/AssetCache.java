@@ -0,0 +1,203 @@
+package com.poguesquest;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Process-wide registry of decoded images. Every resource is decoded once and the
+// same frames are handed to every caller, so nothing may draw into them. Evicted assets
+// are only weakly held: while an entity still draws them, a new request gets the same
+// frames back instead of decoding a second copy, and once nobody uses them they are freed.
+public class AssetCache {
+    private static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024; // 64 MB of decoded pixels
+    private static final AssetCache INSTANCE = new AssetCache(DEFAULT_BUDGET_BYTES);
+
+    private final LinkedHashMap<String, Asset> assets;
+    private final Map<String, Evicted> evicted = new HashMap<>();
+    private long budgetBytes;
+    private long usedBytes;
+    private int loads;
+    private int hits;
+    private int evictions;
+    private int revivals; // Evicted assets taken back because they were still in use
+
+    // A decoded resource: one or more frames that share a single backing sheet. A resource
+    // that failed to decode is cached too, as one null frame, so it isn't read again.
+    private static class Asset {
+        final BufferedImage[] frames;
+        final long sizeBytes;
+
+        Asset(BufferedImage[] frames, long sizeBytes) {
+            this.frames = frames;
+            this.sizeBytes = sizeBytes;
+        }
+    }
+
+    // An evicted asset, its frames held weakly so they can be handed out again while alive
+    private static class Evicted {
+        final List<WeakReference<BufferedImage>> frames = new ArrayList<>();
+        final long sizeBytes;
+
+        Evicted(Asset asset) {
+            for (BufferedImage frame : asset.frames) {
+                frames.add(new WeakReference<>(frame));
+            }
+            this.sizeBytes = asset.sizeBytes;
+        }
+
+        // The frames again, or null if any of them has been collected
+        BufferedImage[] revive() {
+            BufferedImage[] images = new BufferedImage[frames.size()];
+            for (int i = 0; i < images.length; i++) {
+                images[i] = frames.get(i).get();
+                if (images[i] == null) {
+                    return null;
+                }
+            }
+            return images;
+        }
+    }
+
+    public AssetCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        this.assets = new LinkedHashMap<>(16, 0.75f, true); // Access order, eldest = least recently used
+    }
+
+    public static AssetCache getInstance() {
+        return INSTANCE;
+    }
+
+    // Get a single image, decoding it on first use
+    public synchronized BufferedImage getImage(String path) {
+        BufferedImage[] cached = lookup(path);
+        if (cached != null) {
+            return cached[0];
+        }
+        return load(path, () -> {
+            BufferedImage image = ImageLoader.decodeImage(path);
+            return image == null ? null : new BufferedImage[] { image };
+        })[0];
+    }
+
+    // Get a horizontal strip of equally sized frames, slicing the sheet on first use
+    public synchronized BufferedImage[] getFrames(String path, int frameCount) {
+        String key = path + "#" + frameCount;
+        BufferedImage[] cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        return load(key, () -> {
+            BufferedImage sheet = ImageLoader.decodeImage(path);
+            if (sheet == null) {
+                return null;
+            }
+            BufferedImage[] frames = new BufferedImage[frameCount];
+            int frameWidth = sheet.getWidth() / frameCount;
+            int frameHeight = sheet.getHeight();
+            for (int i = 0; i < frameCount; i++) {
+                frames[i] = sheet.getSubimage(i * frameWidth, 0, frameWidth, frameHeight);
+            }
+            return frames;
+        });
+    }
+
+    private BufferedImage[] lookup(String key) {
+        Asset asset = assets.get(key);
+        if (asset == null) {
+            Evicted gone = evicted.remove(key);
+            BufferedImage[] frames = gone == null ? null : gone.revive();
+            if (frames == null) {
+                return null;
+            }
+            asset = new Asset(frames, gone.sizeBytes);
+            assets.put(key, asset);
+            usedBytes += asset.sizeBytes;
+            revivals++;
+            evictIfNeeded();
+        }
+        hits++;
+        return asset.frames;
+    }
+
+    private BufferedImage[] load(String key, Supplier<BufferedImage[]> loader) {
+        BufferedImage[] frames = loader.get();
+        if (frames == null) {
+            frames = new BufferedImage[1]; // Keep the old "null image on failure" behaviour
+        }
+
+        Asset asset = new Asset(frames, estimateSize(frames[0]));
+        assets.put(key, asset);
+        usedBytes += asset.sizeBytes;
+        loads++;
+        evictIfNeeded();
+        return frames;
+    }
+
+    // Demote least recently used assets to weak references until we are back under budget.
+    // Failed decodes hold nothing worth keeping and are simply dropped.
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Asset>> iterator = assets.entrySet().iterator();
+        while (usedBytes > budgetBytes && iterator.hasNext()) {
+            Map.Entry<String, Asset> entry = iterator.next();
+            Asset asset = entry.getValue();
+            iterator.remove();
+            usedBytes -= asset.sizeBytes;
+            evictions++;
+            if (asset.frames[0] != null) {
+                evicted.put(entry.getKey(), new Evicted(asset));
+            }
+        }
+        evicted.values().removeIf(gone -> gone.frames.get(0).get() == null);
+    }
+
+    // Frames of one asset are subimages of the same raster, so count the backing buffer once
+    private static long estimateSize(BufferedImage image) {
+        if (image == null) {
+            return 0;
+        }
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        int bytesPerElement = Math.max(1, DataBuffer.getDataTypeSize(buffer.getDataType()) / 8);
+        return (long) buffer.getSize() * buffer.getNumBanks() * bytesPerElement;
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        evictIfNeeded();
+    }
+
+    public synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    // Bytes the cache holds strongly. Evicted assets still drawn by entities aren't counted.
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int getAssetCount() {
+        return assets.size();
+    }
+
+    public synchronized int getLoads() {
+        return loads;
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getRevivals() {
+        return revivals;
+    }
+}
\ No newline at end of file
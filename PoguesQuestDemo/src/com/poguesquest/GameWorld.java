@@ -0,0 +1,356 @@
+package com.poguesquest;
+
+import com.poguesquest.entities.Guardian;
+import com.poguesquest.entities.GuardianBatch;
+import com.poguesquest.entities.Player;
+import com.poguesquest.entities.ProjectileStore;
+import com.poguesquest.items.Gun;
+import com.poguesquest.utils.Camera;
+import com.poguesquest.utils.InputState;
+import com.poguesquest.utils.RenderSnapshot;
+import com.poguesquest.utils.SaveSnapshot;
+import com.poguesquest.utils.SpatialHash;
+import com.poguesquest.utils.SweepAndPrune;
+import com.poguesquest.world.ChunkStreamer;
+import com.poguesquest.world.EnemyGenerator;
+import com.poguesquest.world.FlowField;
+import com.poguesquest.world.LineOfSight;
+import com.poguesquest.world.Pathfinder;
+import com.poguesquest.world.TileMap;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// All simulation state and the per-tick update, independent of any window.
+// Main drives it from the Swing game loop, HeadlessMain runs it without a display.
+// Every random stream is split from the world seed and all timers count ticks,
+// so the same seed and the same input always produce the same game.
+public class GameWorld {
+    public static final int TILE_SIZE = 32;
+    private final int tileSize = TILE_SIZE;
+    private final int startX;
+    private final int startY;
+    private final ChunkStreamer streamer; // Generates the world around the player as it moves
+    private final TileMap map; // The streamer's window, every tile the simulation can see
+    private final FlowField flowField; // Shortest paths to the player, shared by all pursuing guardians
+    private final Pathfinder pathfinder; // Point to point paths over long distances
+    private final LineOfSight lineOfSight; // Rays toward the player's tile, cached per source tile
+    private final Camera camera;
+    private final Player player;
+    private final List<Guardian> enemies = new ArrayList<>(); // Ascending ids, see Guardian.getId
+    private final SweepAndPrune broadphase = new SweepAndPrune(); // Bullets are set A, enemies set B
+    private boolean[] bulletHit = new boolean[64];
+    private volatile int candidatePairs; // Broadphase pairs that reached the exact hitbox test last tick
+    private final SpatialHash guardianHash = new SpatialHash(Guardian.SEPARATION_DISTANCE, 64);
+    private static final int AI_THREADS = Integer.getInteger("pogue.aiThreads", Runtime.getRuntime().availableProcessors()); // -Dpogue.aiThreads=1 for a single-threaded AI update
+    private final GuardianBatch guardianBatch = new GuardianBatch(AI_THREADS);
+    private long tick;
+    private final long seed;
+    private int unplacedEnemies; // Asked for at startup but not placed, for lack of room on the map
+
+    // The world is mapWidth by mapHeight tiles, but only the chunks around the player are ever in memory
+    public GameWorld(long seed, int mapWidth, int mapHeight, int minEnemies, Camera camera) {
+        this(new ChunkStreamer(seed, mapWidth, mapHeight), minEnemies, camera);
+    }
+
+    // A world over any streamer, such as one reading a saved MapFile. The streamer's seed drives the game.
+    public GameWorld(ChunkStreamer streamer, int minEnemies, Camera camera) {
+        this(streamer, camera, new SplittableRandom(streamer.getSeed()), minEnemies, null);
+    }
+
+    // Continue a saved game, over a streamer for the seed and world it was saved with.
+    // Random streams can't be saved, so they are split again from the seed and the saved tick:
+    // the loaded game picks up exactly where it was saved, then plays out its own way.
+    public GameWorld(ChunkStreamer streamer, SaveSnapshot saved, Camera camera) {
+        this(streamer, camera, new SplittableRandom(streamer.getSeed() ^ saved.getTick()), 0, saved);
+    }
+
+    private GameWorld(ChunkStreamer streamer, Camera camera, SplittableRandom random, int minEnemies, SaveSnapshot saved) {
+        this.seed = streamer.getSeed();
+        this.camera = camera;
+        this.streamer = streamer;
+        map = streamer.getWindow();
+        this.startX = streamer.getStartX();
+        this.startY = streamer.getStartY();
+
+        BufferedImage walkingSpriteSheet = ImageLoader.loadCharacterSpriteSheet("Lyria", "Walk");
+        BufferedImage idleSpriteSheet = ImageLoader.loadCharacterSpriteSheet("Lyria", "Idle");
+
+        BufferedImage pistolSprite = ImageLoader.loadImage("/pistol.png");
+        Gun pistol = new Gun("Pistol", pistolSprite, pistolSprite, 10, 300, camera, random.split());
+
+        flowField = new FlowField(map);
+        pathfinder = new Pathfinder(map);
+        lineOfSight = new LineOfSight(map);
+
+        player = new Player(startX * tileSize, startY * tileSize, walkingSpriteSheet, idleSpriteSheet, tileSize, camera);
+        player.equipWeapon(pistol);
+
+        BufferedImage guardianWalkingSpriteSheet = ImageLoader.loadCharacterSpriteSheet("Guardian", "Walk");
+        BufferedImage guardianIdleSpriteSheet = ImageLoader.loadCharacterSpriteSheet("Guardian", "Idle");
+        if (saved != null) {
+            restore(saved, random, guardianWalkingSpriteSheet, guardianIdleSpriteSheet);
+            return;
+        }
+
+        // Initialize EnemyGenerator and generate enemies
+        EnemyGenerator enemyGenerator = new EnemyGenerator(map, random.nextLong(), player, guardianWalkingSpriteSheet, guardianIdleSpriteSheet);
+        enemies.addAll(enemyGenerator.generateEnemies(minEnemies));
+        for (int i = 0; i < enemies.size(); i++) {
+            enemies.get(i).setId(i);
+        }
+
+        unplacedEnemies = enemyGenerator.getRequestedCount() - enemies.size();
+        System.out.println("Total enemies generated: " + enemies.size());
+        if (unplacedEnemies > 0) {
+            System.out.println("Could not place " + unplacedEnemies + " of " + enemyGenerator.getRequestedCount()
+                    + " enemies, there is no room left on the loaded map.");
+        }
+        snapCamera();
+    }
+
+    // Changed chunks first, then the player, so the window is moved to where the player was saved
+    private void restore(SaveSnapshot saved, SplittableRandom random, BufferedImage guardianWalkingSpriteSheet, BufferedImage guardianIdleSpriteSheet) {
+        tick = saved.getTick();
+        for (int i = 0; i < saved.getChunkCount(); i++) {
+            streamer.restoreChunk(saved.getChunkKey(i), (byte[]) saved.getChunk(i));
+        }
+        player.restore(saved);
+        Point playerCenter = player.getHitboxCenter();
+        streamer.update(playerCenter.x / tileSize, playerCenter.y / tileSize);
+        flowField.invalidate();
+        pathfinder.invalidateAll();
+        lineOfSight.invalidate();
+
+        for (int i = 0; i < saved.getGuardianCount(); i++) {
+            Guardian guardian = new Guardian(0, 0, 32, 32, guardianWalkingSpriteSheet, guardianIdleSpriteSheet, player, map, random.split());
+            guardian.restore(saved, i);
+            enemies.add(guardian);
+        }
+        snapCamera();
+    }
+
+    // Put the camera on the player with no previous position to blend from, so the first
+    // frame doesn't sweep in from the world origin
+    private void snapCamera() {
+        Point playerCenter = player.getHitboxCenter();
+        camera.centerOnPlayer(playerCenter.x, playerCenter.y);
+        camera.clampToBounds(streamer.getWorldWidth(), streamer.getWorldHeight(), tileSize);
+        camera.savePreviousPosition();
+    }
+
+    // Advance the simulation by exactly one tick
+    public void tick(InputState input) {
+        player.savePreviousPosition();
+        for (Guardian enemy : enemies) {
+            enemy.savePreviousPosition();
+        }
+        camera.savePreviousPosition();
+
+        player.update(input.up, input.down, input.left, input.right, input.cursor, map);
+
+        // Stream in the chunks around the player, then re-root the flow field and the sight cache
+        // if the player entered another tile, before any guardian reads them
+        Point playerCenter = player.getHitboxCenter();
+        if (streamer.update(playerCenter.x / tileSize, playerCenter.y / tileSize)) {
+            flowField.invalidate();
+            pathfinder.invalidateAll();
+            lineOfSight.invalidate();
+        }
+        flowField.update(playerCenter.x / tileSize, playerCenter.y / tileSize);
+        lineOfSight.setTarget(playerCenter.x / tileSize, playerCenter.y / tileSize);
+
+        // Remove dead enemies, then bucket the living ones for neighbour queries
+        enemies.removeIf(Guardian::isDead);
+        guardianHash.clear();
+        for (int i = 0; i < enemies.size(); i++) {
+            Guardian enemy = enemies.get(i);
+            guardianHash.insert(i, enemy.getX(), enemy.getY());
+        }
+
+        // Update enemies: intents in parallel from the frozen positions, then attacks in order
+        for (Guardian enemy : enemies) {
+            enemy.setOnScreen(camera.isVisible(enemy.getHitbox()));
+        }
+        guardianBatch.update(enemies, guardianHash, flowField, lineOfSight);
+
+        if (player.getEquippedWeapon() instanceof Gun gun) {
+            gun.updateCursorPosition(input.cursor);
+            gun.updateGunTip(player.getGunPosition());
+
+            if (input.shooting) {
+                gun.attack(player);
+            }
+            gun.updateBullets(map, tileSize);
+
+            checkBulletHits(gun);
+        }
+
+        Point hitboxCenter = player.getHitboxCenter();
+        camera.centerOnPlayer(hitboxCenter.x, hitboxCenter.y);
+
+        camera.clampToBounds(streamer.getWorldWidth(), streamer.getWorldHeight(), tileSize);
+
+        tick++;
+    }
+
+    // Broadphase first, then the exact hitbox test only for the candidate pairs
+    private void checkBulletHits(Gun gun) {
+        ProjectileStore projectiles = gun.getProjectiles();
+        int size = ProjectileStore.SIZE;
+        if (bulletHit.length < projectiles.size()) {
+            bulletHit = new boolean[projectiles.size() * 2];
+        }
+
+        broadphase.clear();
+        for (int i = 0; i < projectiles.size(); i++) {
+            bulletHit[i] = false;
+            if (projectiles.isFlying(i)) {
+                broadphase.addA(i, projectiles.getSerial(i), projectiles.getX(i), projectiles.getY(i), size, size);
+            }
+        }
+        for (int i = 0; i < enemies.size(); i++) {
+            broadphase.addB(i, enemies.get(i).getId(), enemies.get(i).getHitbox());
+        }
+
+        int pairs = broadphase.findPairs();
+        candidatePairs = pairs;
+        for (int i = 0; i < pairs; i++) {
+            int bulletIndex = broadphase.getPairA(i);
+            if (bulletHit[bulletIndex]) {
+                continue; // A bullet only hits one enemy
+            }
+            Guardian enemy = enemies.get(broadphase.getPairB(i));
+            if (enemy.getHitbox().intersects(projectiles.getX(bulletIndex), projectiles.getY(bulletIndex), size, size)) {
+                enemy.damage(gun.getDamage());
+                bulletHit[bulletIndex] = true;
+            }
+        }
+
+        // Remove the bullets that hit, back to front so swap-remove only moves checked bullets
+        for (int i = projectiles.size() - 1; i >= 0; i--) {
+            if (bulletHit[i]) {
+                projectiles.remove(i);
+            }
+        }
+    }
+
+    // Copy what the renderer needs out of the world, in draw order. Called on the
+    // simulation thread between ticks, so nothing here races with tick().
+    public void writeSnapshot(RenderSnapshot snapshot) {
+        snapshot.begin(tick, camera);
+
+        player.addTo(snapshot);
+        if (player.getEquippedWeapon() instanceof Gun gun) {
+            gun.addTo(snapshot, player.getGunPosition(0.0), player.getGunPosition(1.0), player.isFacingRight());
+            gun.getProjectiles().addTo(snapshot);
+        } else {
+            snapshot.setProjectileStats(0, 0, 0);
+        }
+        for (Guardian enemy : enemies) {
+            enemy.addTo(snapshot);
+        }
+
+        snapshot.setCandidatePairs(candidatePairs);
+        snapshot.setFlowFieldStats(flowField.getRebuilds(), flowField.getLastRebuildNanos());
+        snapshot.setChunkStats(streamer.getLoadedCount(), streamer.getStoredCount(), streamer.getStalls());
+    }
+
+    // Copy the state a save needs. Called on the simulation thread between ticks; nothing is
+    // encoded here, so the pause stays short however much has to be written.
+    public void saveTo(SaveSnapshot snapshot) {
+        snapshot.begin(tick, seed, streamer.getWorldWidth(), streamer.getWorldHeight());
+        player.saveTo(snapshot);
+        for (Guardian enemy : enemies) {
+            enemy.saveTo(snapshot);
+        }
+        streamer.saveTo(snapshot);
+    }
+
+    // Hash of the simulation state, equal across runs only if they stayed in lockstep
+    public long checksum() {
+        long hash = tick;
+        hash = hash * 31 + player.getX();
+        hash = hash * 31 + player.getY();
+        hash = hash * 31 + player.getHealth();
+        for (Guardian enemy : enemies) {
+            hash = hash * 31 + enemy.getX();
+            hash = hash * 31 + enemy.getY();
+            hash = hash * 31 + enemy.getHealth();
+        }
+        if (player.getEquippedWeapon() instanceof Gun gun) {
+            ProjectileStore projectiles = gun.getProjectiles();
+            for (int i = 0; i < projectiles.size(); i++) {
+                hash = hash * 31 + projectiles.getX(i);
+                hash = hash * 31 + projectiles.getY(i);
+            }
+        }
+        return hash;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public TileMap getMap() {
+        return map;
+    }
+
+    // Change a tile inside the window and invalidate the path data built from it. The
+    // renderer's TileLayer notices the replaced chunk by itself.
+    public void setTile(int tileX, int tileY, int value) {
+        streamer.setTile(tileX, tileY, value);
+        flowField.invalidate();
+        pathfinder.invalidate(tileX, tileY);
+        lineOfSight.invalidate();
+    }
+
+    public ChunkStreamer getStreamer() {
+        return streamer;
+    }
+
+    public Pathfinder getPathfinder() {
+        return pathfinder;
+    }
+
+    public LineOfSight getLineOfSight() {
+        return lineOfSight;
+    }
+
+    public FlowField getFlowField() {
+        return flowField;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public Camera getCamera() {
+        return camera;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public List<Guardian> getEnemies() {
+        return enemies;
+    }
+
+    // Enemies the generator was asked for but found no room for; 0 for a loaded game
+    public int getUnplacedEnemies() {
+        return unplacedEnemies;
+    }
+
+    // Bullet/enemy pairs the broadphase passed to the exact test on the last tick
+    public int getCandidatePairs() {
+        return candidatePairs;
+    }
+}
\ No newline at end of file
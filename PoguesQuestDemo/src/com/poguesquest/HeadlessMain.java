@@ -0,0 +1,159 @@
+package com.poguesquest;
+
+import com.poguesquest.utils.Camera;
+import com.poguesquest.utils.InputRecorder;
+import com.poguesquest.utils.InputReplay;
+import com.poguesquest.utils.InputSource;
+import com.poguesquest.utils.InputState;
+import com.poguesquest.utils.SaveReader;
+import com.poguesquest.utils.SaveSnapshot;
+import com.poguesquest.utils.SaveWriter;
+import com.poguesquest.utils.ScriptedInput;
+import com.poguesquest.world.ChunkStreamer;
+import com.poguesquest.world.FlowField;
+import com.poguesquest.world.LineOfSight;
+import com.poguesquest.world.MapFile;
+import com.poguesquest.world.MapGenerator;
+import com.poguesquest.world.TileMap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Runs the simulation without a window, as fast as it will go, and reports ticks per second.
+// Usage: HeadlessMain [ticks] [seed] [mapSize] [minEnemies] [--record file] [--save file]
+//        HeadlessMain --replay file
+//        HeadlessMain --load file [ticks]                 continue a saved game
+//        HeadlessMain --export file [mapSize] [seed]    generate a map and save it
+//        HeadlessMain --map file [ticks] [minEnemies]   play on a saved map
+public class HeadlessMain {
+    private static final int SCREEN_WIDTH = 800;
+    private static final int SCREEN_HEIGHT = 600;
+    private static final int SAVE_INTERVAL = 600; // Ticks between saves with --save, 10 s of game time
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true"); // Images still decode, but nothing touches a display
+
+        Camera camera = new Camera(SCREEN_WIDTH, SCREEN_HEIGHT, 2.0);
+
+        if (args.length >= 2 && args[0].equals("--replay")) {
+            try (InputReplay replay = new InputReplay(args[1])) {
+                GameWorld world = new GameWorld(replay.getSeed(), replay.getMapWidth(), replay.getMapHeight(),
+                        replay.getMinEnemies(), camera);
+                System.out.println(run(world, replay, Long.MAX_VALUE, null));
+            }
+            return;
+        }
+
+        if (args.length >= 2 && args[0].equals("--load")) {
+            long ticks = args.length > 2 ? Long.parseLong(args[2]) : 36_000;
+            long start = System.nanoTime();
+            SaveSnapshot saved = SaveReader.read(args[1]);
+            GameWorld world = new GameWorld(new ChunkStreamer(saved.getSeed(), saved.getWorldWidth(), saved.getWorldHeight()),
+                    saved, camera);
+            System.out.printf("Loaded tick %d in %.1f ms, checksum %016x%n", saved.getTick(),
+                    (System.nanoTime() - start) / 1e6, world.checksum());
+            System.out.println(run(world, new ScriptedInput(saved.getSeed(), SCREEN_WIDTH, SCREEN_HEIGHT), ticks, null));
+            return;
+        }
+
+        if (args.length >= 2 && args[0].equals("--export")) {
+            int mapSize = args.length > 2 ? Integer.parseInt(args[2]) : 4096;
+            long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+            long start = System.nanoTime();
+            TileMap map = new MapGenerator(mapSize, mapSize, seed, Runtime.getRuntime().availableProcessors())
+                    .generateMap(mapSize / 2, mapSize / 2);
+            long generated = System.nanoTime();
+            MapFile.write(args[1], map, seed, mapSize / 2, mapSize / 2);
+            long written = System.nanoTime();
+            System.out.printf("%dx%d map generated in %.1f ms, written in %.1f ms, %d KB%n", mapSize, mapSize,
+                    (generated - start) / 1e6, (written - generated) / 1e6, Files.size(Path.of(args[1])) / 1024);
+            return;
+        }
+
+        if (args.length >= 2 && args[0].equals("--map")) {
+            long ticks = args.length > 2 ? Long.parseLong(args[2]) : 36_000;
+            int minEnemies = args.length > 3 ? Integer.parseInt(args[3]) : 15;
+            long start = System.nanoTime();
+            MapFile file = MapFile.open(args[1]);
+            System.out.printf("%dx%d map opened in %.2f ms%n", file.getWidth(), file.getHeight(),
+                    (System.nanoTime() - start) / 1e6);
+            GameWorld world = new GameWorld(new ChunkStreamer(file), minEnemies, camera);
+            System.out.println(run(world, new ScriptedInput(file.getSeed(), SCREEN_WIDTH, SCREEN_HEIGHT), ticks, null));
+            return;
+        }
+
+        long ticks = args.length > 0 ? Long.parseLong(args[0]) : 36_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        int mapSize = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int minEnemies = args.length > 3 ? Integer.parseInt(args[3]) : 15;
+        String recordPath = null;
+        String savePath = null;
+        for (int i = 4; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--record")) {
+                recordPath = args[i + 1];
+            } else if (args[i].equals("--save")) {
+                savePath = args[i + 1];
+            }
+        }
+
+        GameWorld world = new GameWorld(seed, mapSize, mapSize, minEnemies, camera);
+        InputSource input = new ScriptedInput(seed, SCREEN_WIDTH, SCREEN_HEIGHT);
+        SaveWriter saver = savePath != null ? new SaveWriter(savePath, seed, mapSize, mapSize) : null;
+
+        try {
+            if (recordPath != null) {
+                try (InputRecorder recorder = new InputRecorder(recordPath, seed, mapSize, mapSize, minEnemies, input)) {
+                    System.out.println(run(world, recorder, ticks, saver));
+                }
+            } else {
+                System.out.println(run(world, input, ticks, saver));
+            }
+        } finally {
+            if (saver != null) {
+                saver.close();
+            }
+        }
+    }
+
+    // Tick the world with the given input and describe how fast it went.
+    // A replay stops on its own once the recording runs out. With a saver, the game is
+    // saved every SAVE_INTERVAL ticks and once more after the last tick.
+    public static String run(GameWorld world, InputSource input, long ticks, SaveWriter saver) {
+        InputState state = new InputState();
+        long start = System.nanoTime();
+        long ran = 0;
+        while (ran < ticks) {
+            input.poll(world.getTick(), state);
+            if (input instanceof InputReplay replay && replay.isFinished()) {
+                break;
+            }
+            world.tick(state);
+            ran++;
+            if (saver != null && world.getTick() % SAVE_INTERVAL == 0) {
+                saver.save(world::saveTo);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        String saves = "";
+        if (saver != null) {
+            saver.awaitWrite();
+            saver.save(world::saveTo);
+            saver.awaitWrite();
+            saves = String.format(", saves %d (%d skipped), last capture %.1f us, max %.1f us, save file %d bytes",
+                    saver.getSaves(), saver.getSkipped(), saver.getLastCaptureNanos() / 1e3,
+                    saver.getMaxCaptureNanos() / 1e3, saver.getBytes());
+        }
+
+        FlowField flowField = world.getFlowField();
+        LineOfSight lineOfSight = world.getLineOfSight();
+        ChunkStreamer streamer = world.getStreamer();
+        return String.format("%d ticks in %.3f s, %.0f ticks/s, %d enemies left (%d unplaced), player health %d, "
+                        + "flow field rebuilds %d (%.1f per 1000 ticks, avg %.1f us), sight rays %d of %d lookups, "
+                        + "window moves %d, chunks loaded %d, stalls %d, checksum %016x%s",
+                ran, seconds, ran / seconds, world.getEnemies().size(), world.getUnplacedEnemies(), world.getPlayer().getHealth(),
+                flowField.getRebuilds(), flowField.getRebuilds() * 1000.0 / Math.max(1, ran),
+                flowField.getAverageRebuildNanos() / 1e3, lineOfSight.getCasts(), lineOfSight.getLookups(),
+                streamer.getRecenters(), streamer.getLoadedCount(), streamer.getStalls(), world.checksum(), saves);
+    }
+}
\ No newline at end of file
@@ -3,12 +3,24 @@ package com.poguesquest;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.IOException;
+import java.net.URL;
 
 public class ImageLoader {
+    // Images are decoded once and shared through the AssetCache, never draw into them
     public static BufferedImage loadImage(String path) {
+        return AssetCache.getInstance().getImage(path);
+    }
+
+    // Decode an image straight from the classpath, bypassing the cache
+    static BufferedImage decodeImage(String path) {
         System.out.println("Loading image from path: " + path); // Debugging line
+        URL resource = ImageLoader.class.getResource(path);
+        if (resource == null) {
+            System.err.println("Image not found: " + path);
+            return null;
+        }
         try {
-            return ImageIO.read(ImageLoader.class.getResource(path));
+            return ImageIO.read(resource);
         } catch (IOException e) {
             e.printStackTrace();
             return null;
@@ -23,19 +35,11 @@ public class ImageLoader {
 
     // Add a method to load the bullet image
     public static BufferedImage loadBulletImage() {
-        return loadImage("/bullet.png"); // Specify the path to the bullet image
+        return loadImage("/Bullet.png"); // Specify the path to the bullet image
     }
 
     // Add a method to load the hit effect sprite sheet and extract frames
     public static BufferedImage[] loadHitEffectFrames() {
-        BufferedImage spriteSheet = loadImage("/hit_effect.png"); // Specify the path to the sprite sheet
-        BufferedImage[] frames = new BufferedImage[8];
-        int frameWidth = spriteSheet.getWidth() / 8;
-        int frameHeight = spriteSheet.getHeight();
-
-        for (int i = 0; i < 8; i++) {
-            frames[i] = spriteSheet.getSubimage(i * frameWidth, 0, frameWidth, frameHeight);
-        }
-        return frames;
+        return AssetCache.getInstance().getFrames("/hit_effect.png", 8); // Shared array, do not modify
     }
 }
\ No newline at end of file
@@ -1,38 +1,57 @@
 package com.poguesquest;
 
-import com.poguesquest.entities.Guardian;
-import com.poguesquest.entities.Player;
-import com.poguesquest.entities.Bullet;
-import com.poguesquest.items.Gun;
-import com.poguesquest.items.Weapon;
 import com.poguesquest.utils.Camera;
+import com.poguesquest.utils.InputRecorder;
+import com.poguesquest.utils.InputSource;
+import com.poguesquest.utils.InputState;
 import com.poguesquest.utils.KeyHandler;
+import com.poguesquest.utils.LiveInput;
 import com.poguesquest.utils.MouseHandler;
-import com.poguesquest.world.MapGenerator;
-import com.poguesquest.world.EnemyGenerator;
+import com.poguesquest.utils.RateCounter;
+import com.poguesquest.utils.RenderSnapshot;
+import com.poguesquest.utils.RenderStats;
+import com.poguesquest.utils.SaveReader;
+import com.poguesquest.utils.SaveSnapshot;
+import com.poguesquest.utils.SaveWriter;
+import com.poguesquest.utils.SnapshotExchange;
+import com.poguesquest.world.ChunkStreamer;
+import com.poguesquest.world.TileLayer;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
-import java.util.Iterator;
-import java.util.List;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
 
 public class Main extends JPanel implements Runnable {
     private Thread gameThread;
-    private Player player;
-    private BufferedImage walkingSpriteSheet, idleSpriteSheet;
+    private GameWorld world;
+    private SnapshotExchange snapshots; // Ticks are handed to the renderer only through published snapshots
     private KeyHandler keyHandler;
     private MouseHandler mouseHandler;
-    private int[][] map;
+    private InputSource input;
+    private SaveWriter saver; // Null unless -Dpogue.save is set
+    private final InputState inputState = new InputState();
     private Camera camera;
-    private final int tileSize = 32; // Updated tile size
-    private final int startX = 25;
-    private final int startY = 25;
-    private BufferedImage tileset;
-    private List<Guardian> enemies;
-    int minDistance;
+    private TileLayer tileLayer;
+    private final RenderStats renderStats = new RenderStats();
+    private static final int MAP_SIZE = 1 << 16; // World size in tiles, streamed in chunks around the player
+    private static final int MIN_ENEMIES = 15;
+    private static final int TICK_RATE = Integer.getInteger("pogue.tickRate", 60); // Simulation ticks per second
+    private static final int FRAME_RATE = Integer.getInteger("pogue.frameRate", 120); // Target repaints per second
+    private static final int MAX_CATCH_UP_TICKS = 5; // Ticks run back to back before we drop the backlog
+    private static final int SAVE_INTERVAL = Integer.getInteger("pogue.saveInterval", 600); // Ticks between autosaves
+    private final RateCounter tickRate = new RateCounter();
+    private final RateCounter frameRate = new RateCounter();
+    private volatile double renderAlpha = 1.0; // How far we are between the previous and current tick
+    private static final boolean ACTIVE_RENDERING = !"swing".equals(System.getProperty("pogue.renderer")); // -Dpogue.renderer=swing for the repaint() path
+    private static final boolean VSYNC = Boolean.getBoolean("pogue.vsync"); // Pace frames to the display refresh rate
+    private static final int BUFFER_COUNT = 3;
+    private Canvas canvas; // Only used for active rendering
+    private volatile boolean activeRendering;
+    private static final boolean SHOW_STATS = Boolean.getBoolean("pogue.stats"); // Run with -Dpogue.stats=true
 
     public Main() {
         SwingUtilities.invokeLater(() -> requestFocusInWindow());
@@ -42,104 +61,218 @@ public class Main extends JPanel implements Runnable {
         mouseHandler = new MouseHandler();
         keyHandler = new KeyHandler();
 
-        walkingSpriteSheet = ImageLoader.loadCharacterSpriteSheet("Lyria", "Walk");
-        idleSpriteSheet = ImageLoader.loadCharacterSpriteSheet("Lyria", "Idle");
+        input = new LiveInput(keyHandler, mouseHandler);
 
-        BufferedImage pistolSprite = ImageLoader.loadImage("/pistol.png");
-        Gun pistol = new Gun("Pistol", pistolSprite, pistolSprite, 10, 300, camera);
+        long seed = Long.getLong("pogue.seed", System.currentTimeMillis());
 
-        MapGenerator generator = new MapGenerator(50, 50, System.currentTimeMillis());
-        map = generator.generateMap(startX, startY);
-
-        player = new Player(startX * tileSize, startY * tileSize, walkingSpriteSheet, idleSpriteSheet, tileSize, camera);
-        player.equipWeapon(pistol);
+        // -Dpogue.load=<file> continues a game saved with -Dpogue.save
+        String loadPath = System.getProperty("pogue.load");
+        boolean loaded = false;
+        if (loadPath != null) {
+            try {
+                SaveSnapshot saved = SaveReader.read(loadPath);
+                seed = saved.getSeed();
+                world = new GameWorld(new ChunkStreamer(seed, saved.getWorldWidth(), saved.getWorldHeight()), saved, camera);
+                loaded = true;
+                System.out.println("Loaded tick " + saved.getTick() + " from " + loadPath);
+            } catch (IOException e) {
+                System.out.println("Could not load " + loadPath + ": " + e.getMessage());
+            }
+        }
+        if (world == null) {
+            world = new GameWorld(seed, MAP_SIZE, MAP_SIZE, MIN_ENEMIES, camera);
+        }
+        System.out.println("World seed: " + seed);
 
-        // Initialize EnemyGenerator and generate enemies
-        BufferedImage guardianWalkingSpriteSheet = ImageLoader.loadCharacterSpriteSheet("Guardian", "Walk");
-        BufferedImage guardianIdleSpriteSheet = ImageLoader.loadCharacterSpriteSheet("Guardian", "Idle");
-        EnemyGenerator enemyGenerator = new EnemyGenerator(map, 50, 5, System.currentTimeMillis(), player, guardianWalkingSpriteSheet, guardianIdleSpriteSheet);
-        enemies = enemyGenerator.generateEnemies(15);
+        // -Dpogue.save=<file> saves the game every SAVE_INTERVAL ticks, writing on a background thread
+        String savePath = System.getProperty("pogue.save");
+        if (savePath != null) {
+            try {
+                ChunkStreamer streamer = world.getStreamer();
+                SaveWriter writer = new SaveWriter(savePath, seed, streamer.getWorldWidth(), streamer.getWorldHeight());
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        writer.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }));
+                saver = writer;
+            } catch (IOException e) {
+                System.out.println("Could not save to " + savePath + ": " + e.getMessage());
+            }
+        }
 
-        System.out.println("Total enemies generated: " + enemies.size());
+        // -Dpogue.record=<file> writes every tick's input so HeadlessMain can replay the session.
+        // A replay rebuilds a fresh world from the seed, so a loaded game can't be recorded.
+        String recordPath = System.getProperty("pogue.record");
+        if (recordPath != null && loaded) {
+            System.out.println("Not recording input to " + recordPath + ", a loaded game can't be replayed");
+        } else if (recordPath != null) {
+            try {
+                InputRecorder recorder = new InputRecorder(recordPath, seed, MAP_SIZE, MAP_SIZE, MIN_ENEMIES, input);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        recorder.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }));
+                input = recorder;
+            } catch (IOException e) {
+                System.out.println("Could not record input to " + recordPath + ": " + e.getMessage());
+            }
+        }
+        snapshots = new SnapshotExchange(camera, 64);
+        publishSnapshot(); // So the first frame has something to draw
 
         setPreferredSize(new Dimension(800, 600));
         setFocusable(true);
         requestFocusInWindow();
 
-        addMouseListener(mouseHandler);
-        addMouseMotionListener(mouseHandler);
-        addKeyListener(keyHandler);
-
-        addMouseMotionListener(new MouseAdapter() {
-            @Override
-            public void mouseMoved(MouseEvent e) {
-                player.updateCursorPosition(mouseHandler.getCursorPosition());
-            }
-        });
+        addInputListeners(this);
+
+        // Active rendering draws into a Canvas from the game thread instead of waiting on the EDT
+        if (ACTIVE_RENDERING && !GraphicsEnvironment.isHeadless()) {
+            setLayout(new BorderLayout());
+            canvas = new Canvas();
+            canvas.setIgnoreRepaint(true);
+            canvas.setFocusable(true);
+            addInputListeners(canvas);
+            add(canvas, BorderLayout.CENTER);
+            SwingUtilities.invokeLater(() -> canvas.requestFocusInWindow());
+            activeRendering = true;
+        }
 
-        tileset = ImageLoader.loadImage("/WallSheet.png"); // Load your 16-piece tileset image
+        BufferedImage tileset = ImageLoader.loadImage("/WallSheet.png"); // Load your 16-piece tileset image
+        tileLayer = new TileLayer(world.getStreamer(), tileset, world.getTileSize());
 
         gameThread = new Thread(this);
         gameThread.start();
     }
 
+    // Fixed-timestep loop: the simulation advances in constant ticks, and repaints
+    // happen in between, interpolating between the last two ticks
     @Override
     public void run() {
-        while (true) {
-            player.update(keyHandler.isUp(), keyHandler.isDown(), keyHandler.isLeft(), keyHandler.isRight(), mouseHandler.getCursorPosition(), map);
-
-            // Update enemies and remove dead ones
-            Iterator<Guardian> enemyIterator = enemies.iterator();
-            while (enemyIterator.hasNext()) {
-                Guardian enemy = enemyIterator.next();
-                enemy.update(enemies);
-
-                // Check collision with walls for the enemy
-                if (enemy.isColliding(map, tileSize)) {
-                    // Handle collision logic, such as stopping movement or adjusting position
-                }
+        long tickNanos = 1_000_000_000L / TICK_RATE;
+        long frameNanos = 1_000_000_000L / (VSYNC ? getDisplayRefreshRate() : FRAME_RATE);
+        long previousTime = System.nanoTime();
+        long accumulator = 0;
+        long nextFrameTime = previousTime;
 
-                // Remove dead enemies
-                if (enemy.isDead()) {
-                    enemyIterator.remove();
+        while (true) {
+            long now = System.nanoTime();
+            accumulator += now - previousTime;
+            previousTime = now;
+
+            int ticks = 0;
+            while (accumulator >= tickNanos && ticks < MAX_CATCH_UP_TICKS) {
+                input.poll(world.getTick(), inputState);
+                world.tick(inputState);
+                if (saver != null && world.getTick() % SAVE_INTERVAL == 0) {
+                    saver.save(world::saveTo); // Skipped, not waited for, if the last save is still writing
                 }
+                publishSnapshot();
+                tickRate.increment();
+                accumulator -= tickNanos;
+                ticks++;
+            }
+            if (accumulator >= tickNanos) {
+                accumulator %= tickNanos; // Too far behind, let the game slow down instead of spiralling
             }
 
-            if (player.getEquippedWeapon() instanceof Gun gun) {
-                gun.updateCursorPosition(mouseHandler.getCursorPosition());
-                gun.updateGunTip(player.getGunPosition());
-
-                if (mouseHandler.isShooting()) {
-                    gun.attack(player);
-                }
-                gun.updateBullets(map, tileSize);
-
-                // Check bullet collisions with enemies
-                Iterator<Bullet> bulletIterator = gun.getBullets().iterator();
-                while (bulletIterator.hasNext()) {
-                    Bullet bullet = bulletIterator.next();
-                    for (Guardian enemy : enemies) {
-                        if (bullet.getHitbox().intersects(enemy.getHitbox())) {
-                            enemy.damage(gun.getDamage());
-                            bulletIterator.remove();
-                            break;
-                        }
-                    }
+            if (now >= nextFrameTime) {
+                renderAlpha = accumulator / (double) tickNanos;
+                if (activeRendering) {
+                    renderActive();
+                } else {
+                    repaint();
                 }
+                nextFrameTime = now + frameNanos;
             }
 
-            Point hitboxCenter = player.getHitboxCenter();
-            camera.centerOnPlayer(hitboxCenter.x, hitboxCenter.y);
+            long nextTickTime = now + (tickNanos - accumulator);
+            waitUntil(Math.min(nextTickTime, nextFrameTime));
+        }
+    }
 
-            camera.clampToBounds(map[0].length, map.length, tileSize);
+    private void publishSnapshot() {
+        world.writeSnapshot(snapshots.getBackBuffer());
+        snapshots.publish();
+    }
 
-            repaint();
+    // Draw a frame straight into the canvas back buffer and flip it, all on the game thread
+    private void renderActive() {
+        if (!canvas.isDisplayable() || canvas.getWidth() == 0) {
+            return; // Window not shown yet
+        }
 
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        if (strategy == null) {
             try {
-                Thread.sleep(16);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+                canvas.createBufferStrategy(BUFFER_COUNT);
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                System.out.println("Active rendering unavailable, falling back to Swing: " + e.getMessage());
+                fallBackToSwing();
+                return;
             }
+            strategy = canvas.getBufferStrategy();
+        }
+
+        // The buffers can be lost or restored at any time (e.g. on resize), so redraw until they are stable
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    g2d.setColor(getBackground());
+                    g2d.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+                    renderFrame(g2d);
+                } finally {
+                    g2d.dispose();
+                }
+            } while (strategy.contentsRestored());
+
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        if (VSYNC) {
+            Toolkit.getDefaultToolkit().sync();
+        }
+    }
+
+    private void fallBackToSwing() {
+        activeRendering = false;
+        SwingUtilities.invokeLater(() -> {
+            remove(canvas);
+            revalidate();
+            requestFocusInWindow();
+        });
+    }
+
+    private int getDisplayRefreshRate() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return FRAME_RATE;
+        }
+        int refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+        return refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN ? FRAME_RATE : refreshRate;
+    }
+
+    private void addInputListeners(Component component) {
+        component.addMouseListener(mouseHandler);
+        component.addMouseMotionListener(mouseHandler);
+        component.addKeyListener(keyHandler);
+    }
+
+    // Sleep most of the way, then spin for the last bit so wake-up is precise
+    private void waitUntil(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining > 2_000_000L) {
+            LockSupport.parkNanos(remaining - 1_000_000L);
+        }
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
         }
     }
 
@@ -147,52 +280,64 @@ public class Main extends JPanel implements Runnable {
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.scale(camera.getScaleFactor(), camera.getScaleFactor());
-        g2d.translate(-camera.getX(), -camera.getY());
+        if (!activeRendering) {
+            renderFrame((Graphics2D) g);
+        }
+    }
 
-        renderMap(g2d);
+    // Draw the whole scene, shared by the Swing and the active rendering paths. Only the
+    // latest published snapshot is read, never the live world, so no locks are needed.
+    private void renderFrame(Graphics2D g2d) {
+        RenderSnapshot snapshot = snapshots.acquire();
+        Camera view = snapshot.getView();
 
-        player.render(g2d);
+        AffineTransform screenTransform = g2d.getTransform();
+        g2d.scale(view.getScaleFactor(), view.getScaleFactor());
+        double alpha = renderAlpha;
+        g2d.translate(-Math.round(view.getRenderX(alpha)), -Math.round(view.getRenderY(alpha)));
 
-        if (player.getEquippedWeapon() != null) {
-            Weapon equippedWeapon = player.getEquippedWeapon();
-            if (equippedWeapon instanceof Gun gun) {
-                Point gunPosition = player.getGunPosition();
-                gun.render(g2d, gunPosition.x, gunPosition.y, player.isFacingRight());
-            }
-        }
+        renderStats.beginFrame();
 
-        if (player.getEquippedWeapon() instanceof Gun gun) {
-            for (var bullet : gun.getBullets()) {
-                bullet.render(g2d);
-            }
-        }
+        tileLayer.render(g2d, view, alpha, renderStats);
+        snapshot.render(g2d, alpha, renderStats);
+
+        renderStats.endFrame();
+        frameRate.increment();
 
-        // Render enemies
-        for (Guardian enemy : enemies) {
-            enemy.render(g2d);
+        if (SHOW_STATS) {
+            g2d.setTransform(screenTransform);
+            renderStatsOverlay(g2d, snapshot);
         }
     }
 
-    private void renderMap(Graphics g) {
-        for (int y = 0; y < map.length; y++) {
-            for (int x = 0; x < map[0].length; x++) {
-                int tileValue = map[y][x];
+    // Draw the debug counters in screen space, on top of the world
+    private void renderStatsOverlay(Graphics g, RenderSnapshot snapshot) {
+        g.setColor(Color.WHITE);
+        g.drawString("TPS " + tickRate.getRate() + "  FPS " + frameRate.getRate() + "  hit pairs " + snapshot.getCandidatePairs(), 10, 20);
+        g.drawString(renderStats.toString(), 10, 36);
+        g.drawString("projectiles " + snapshot.getProjectileCount() + "  slot hits " + snapshot.getProjectileHits()
+                + "  misses " + snapshot.getProjectileMisses() + "  snapshots skipped " + snapshots.getSkipped(), 10, 52);
+        g.drawString("flow field rebuilds " + snapshot.getFlowFieldRebuilds()
+                + String.format("  last %.3f ms", snapshot.getFlowFieldRebuildNanos() / 1e6), 10, 68);
+        g.drawString("chunks loaded " + snapshot.getChunksLoaded() + "  stored " + snapshot.getChunksStored()
+                + "  stalls " + snapshot.getChunkStalls(), 10, 84);
+    }
 
-                if (tileValue == 1) { // Floor
-                    g.setColor(new Color(34, 32, 52)); // Set floor color to grey
-                    g.fillRect(x * tileSize, y * tileSize, tileSize, tileSize);
-                } else { // Wall
-                    // Calculate the tile index in the tileset based on the tileValue
-                    int tilesetX = (tileValue % 4) * tileSize;
-                    int tilesetY = (tileValue / 4) * tileSize;
+    public RenderStats getRenderStats() {
+        return renderStats;
+    }
 
-                    g.drawImage(tileset, x * tileSize, y * tileSize, (x + 1) * tileSize, (y + 1) * tileSize,
-                            tilesetX, tilesetY, tilesetX + tileSize, tilesetY + tileSize, null);
-                }
-            }
-        }
+    // Simulation ticks per second, measured separately from the frame rate
+    public int getTickRate() {
+        return tickRate.getRate();
+    }
+
+    public int getFrameRate() {
+        return frameRate.getRate();
+    }
+
+    public GameWorld getWorld() {
+        return world;
     }
 
     public static void main(String[] args) {
@@ -4,12 +4,15 @@ import java.awt.*;
 
 public abstract class Entity {
     protected int x, y;
+    protected int prevX, prevY; // Position at the start of the current tick, for render interpolation
     protected int width, height;
     protected Rectangle hitbox;
 
     public Entity(int x, int y, int width, int height) {
         this.x = x;
         this.y = y;
+        this.prevX = x;
+        this.prevY = y;
         this.width = width;
         this.height = height;
         this.hitbox = new Rectangle(x, y, width, height);
@@ -20,6 +23,21 @@ public abstract class Entity {
         hitbox.setLocation(x, y);
     }
 
+    // Remember where the entity was before this tick moves it
+    public void savePreviousPosition() {
+        prevX = x;
+        prevY = y;
+    }
+
+    // Position blended between the previous and current tick, alpha in [0, 1]
+    public int getRenderX(double alpha) {
+        return (int) Math.round(prevX + (x - prevX) * alpha);
+    }
+
+    public int getRenderY(double alpha) {
+        return (int) Math.round(prevY + (y - prevY) * alpha);
+    }
+
     // Check for collision with another entity
     public boolean collidesWith(Entity other) {
         return hitbox.intersects(other.hitbox);
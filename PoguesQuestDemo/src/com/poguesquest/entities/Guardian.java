@@ -3,34 +3,46 @@ package com.poguesquest.entities;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
-import com.poguesquest.utils.SpriteSheet;
+import com.poguesquest.utils.FrameSet;
+import com.poguesquest.utils.RenderSnapshot;
+import com.poguesquest.utils.SaveSnapshot;
+import com.poguesquest.utils.SpatialHash;
+import com.poguesquest.world.FlowField;
+import com.poguesquest.world.LineOfSight;
+import com.poguesquest.world.TileMap;
 
 public class Guardian extends Enemy {
     private static final int MOVEMENT_SPEED = 1;
     private static final int ATTACK_DAMAGE = 10; // Damage dealt to the player
     private static final int MAX_HEALTH = 30;
     private static final int LINE_OF_SIGHT = 200;
-    private static final int ATTACK_COOLDOWN = 100; // Cooldown period in milliseconds
+    private static final int ATTACK_COOLDOWN = 6; // Cooldown period in ticks (100 ms at 60 ticks per second)
+    private static final int IDLE_DURATION = 180; // Ticks spent idle after retreating (3 seconds)
     public static final int SEPARATION_DISTANCE = 50;
+    private static final int TILE_SIZE = 32;
     private int health = MAX_HEALTH;
     private Player player;
-    private BufferedImage[] walkingFrames;
-    private BufferedImage[] idleFrames;
+    private FrameSet walkingFrames;
+    private FrameSet idleFrames;
     private int currentFrame;
     private int frameDelay;
     private boolean moving;
     private boolean facingRight;
+    private int[] neighbours = new int[16]; // Scratch buffer for spatial hash queries
+    private boolean onScreen = true; // Off-screen guardians skip animation bookkeeping
     private Rectangle hitbox;
-    private int[][] map;
+    private TileMap map;
     private int currentLineOfSight;
-    private Random random;
+    private SplittableRandom random; // This guardian's own stream, split from the world seed
     private int wanderTime;
     private int wanderDirection;
     private GuardianState state;
-    private long idleStartTime;
-    private long lastAttackTime; // Time of the last attack
+    private int idleTicks; // Ticks spent idle so far
+    private int attackCooldown; // Ticks until the next attack is allowed
+    private boolean attackIntent; // Decided in update, dealt to the player in applyIntent
+    private int id; // Stable across saves, ascending in the world's guardian list
 
     private enum GuardianState {
         IDLE,
@@ -39,32 +51,23 @@ public class Guardian extends Enemy {
         RETREATING
     }
 
-    public Guardian(int x, int y, int width, int height, BufferedImage walkingSpriteSheet, BufferedImage idleSpriteSheet, Player player, int[][] map) {
+    public Guardian(int x, int y, int width, int height, BufferedImage walkingSpriteSheet, BufferedImage idleSpriteSheet, Player player, TileMap map, SplittableRandom random) {
         super(x, y, width, height, LINE_OF_SIGHT, null);
         this.player = player;
         this.map = map;
 
-        // Initialize sprite frames
-        SpriteSheet walkingSheet = new SpriteSheet(walkingSpriteSheet);
-        walkingFrames = new BufferedImage[8];
-        for (int i = 0; i < 8; i++) {
-            walkingFrames[i] = walkingSheet.getPlayerFrame(i);
-        }
-
-        SpriteSheet idleSheet = new SpriteSheet(idleSpriteSheet);
-        idleFrames = new BufferedImage[8];
-        for (int i = 0; i < 8; i++) {
-            idleFrames[i] = idleSheet.getPlayerFrame(i);
-        }
+        // Initialize sprite frames, mirrored copies are built once per sheet
+        walkingFrames = FrameSet.of(walkingSpriteSheet);
+        idleFrames = FrameSet.of(idleSpriteSheet);
 
         this.facingRight = true;
         this.hitbox = new Rectangle(x, y, 25, 25);
         this.currentLineOfSight = LINE_OF_SIGHT;
-        this.random = new Random();
+        this.random = random;
         this.wanderTime = 0;
         this.wanderDirection = random.nextInt(4); // Random initial direction
         this.state = GuardianState.WANDERING; // Initial state
-        this.lastAttackTime = 0; // Initialize the last attack time
+        this.attackCooldown = 0; // Ready to attack right away
     }
 
     @Override
@@ -84,11 +87,23 @@ public class Guardian extends Enemy {
         return health <= 0;
     }
 
-    public void update(List<Guardian> guardians) {
+    // Guardians track their own health, Enemy.health only holds the constructor value
+    @Override
+    public int getHealth() {
+        return health;
+    }
+
+    // Intent phase of the tick. Other guardians are only read at their frozen start-of-tick
+    // positions and only this guardian's own fields are written, so guardians can be updated
+    // in any order or in parallel. Effects on the player wait for applyIntent.
+    // The flow field and line of sight are shared by all guardians. Without a flow field
+    // pursuit is greedy, without line of sight walls don't block the view.
+    public void update(List<Guardian> guardians, SpatialHash spatialHash, FlowField flowField, LineOfSight lineOfSight) {
         moving = false;
+        attackIntent = false;
 
         // Maintain separation from other guardians
-        separateFromOthers(guardians);
+        separateFromOthers(guardians, spatialHash);
 
         if (player.isDead()) {
             state = GuardianState.WANDERING; // Reset to wandering if player is dead
@@ -102,10 +117,10 @@ public class Guardian extends Enemy {
                 wander();
                 break;
             case PURSUING:
-                pursuePlayer();
+                pursuePlayer(flowField);
                 break;
             case RETREATING:
-                retreatFromPlayer();
+                retreatFromPlayer(lineOfSight);
                 break;
         }
 
@@ -113,38 +128,50 @@ public class Guardian extends Enemy {
         if (!player.isDead()) {
             if (isHealthLow() && state != GuardianState.RETREATING) {
                 state = GuardianState.RETREATING;
-            } else if (isPlayerInSight() && state != GuardianState.RETREATING) {
+            } else if (isPlayerInSight(lineOfSight) && state != GuardianState.RETREATING) {
                 state = GuardianState.PURSUING;
-            } else if (state == GuardianState.PURSUING && !isPlayerInSight()) {
+            } else if (state == GuardianState.PURSUING && !isPlayerInSight(lineOfSight)) {
                 state = GuardianState.WANDERING;
             }
         }
 
         // Check for player collision and damage the player if close and cooldown has passed
+        if (attackCooldown > 0) {
+            attackCooldown--;
+        }
         if (state == GuardianState.PURSUING && isPlayerClose()) {
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - lastAttackTime >= ATTACK_COOLDOWN) {
-                player.damage(ATTACK_DAMAGE);
-                lastAttackTime = currentTime; // Update the last attack time
+            if (attackCooldown == 0) {
+                attackIntent = true;
+                attackCooldown = ATTACK_COOLDOWN; // Restart the cooldown
             }
         }
 
-        frameDelay++;
-        if (frameDelay > 2) {
-            currentFrame++;
-            if (moving) {
-                currentFrame %= walkingFrames.length;
-            } else {
-                currentFrame %= idleFrames.length;
+        if (onScreen) {
+            frameDelay++;
+            if (frameDelay > 2) {
+                currentFrame++;
+                if (moving) {
+                    currentFrame %= walkingFrames.size();
+                } else {
+                    currentFrame %= idleFrames.size();
+                }
+                frameDelay = 0;
             }
-            frameDelay = 0;
         }
 
         updateHitbox();
     }
 
+    // Apply phase, run on one thread in list order after every guardian has updated
+    public void applyIntent() {
+        if (attackIntent && !player.isDead()) {
+            player.damage(ATTACK_DAMAGE);
+        }
+        attackIntent = false;
+    }
+
     private void handleIdleState() {
-        if (System.currentTimeMillis() - idleStartTime > 3000) { // Check if 3 seconds have passed
+        if (++idleTicks > IDLE_DURATION) { // Check if 3 seconds have passed
             state = GuardianState.WANDERING;
         }
     }
@@ -153,9 +180,14 @@ public class Guardian extends Enemy {
         hitbox.setLocation(x, y);
     }
 
-    private boolean isPlayerInSight() {
+    // Within sight range first, then a ray from our tile, shared with every guardian on it
+    private boolean isPlayerInSight(LineOfSight lineOfSight) {
         double distance = getDistance(x, y, player.getX(), player.getY());
-        return distance <= currentLineOfSight;
+        if (distance > currentLineOfSight) {
+            return false;
+        }
+        return lineOfSight == null
+                || lineOfSight.canSeeTarget((x + hitbox.width / 2) / TILE_SIZE, (y + hitbox.height / 2) / TILE_SIZE);
     }
 
     private boolean isPlayerClose() {
@@ -167,29 +199,42 @@ public class Guardian extends Enemy {
         return health <= (MAX_HEALTH / 3);
     }
 
-    private void pursuePlayer() {
-        int playerX = player.getX();
-        int playerY = player.getY();
+    // Follow the flow field one tile at a time, so walls between us and the player are walked around
+    private void pursuePlayer(FlowField flowField) {
+        int tileX = (x + hitbox.width / 2) / TILE_SIZE;
+        int tileY = (y + hitbox.height / 2) / TILE_SIZE;
+
+        if (flowField != null && flowField.hasStep(tileX, tileY)) {
+            // Aim for the middle of the next tile so the hitbox fits through one tile wide gaps
+            int inset = (TILE_SIZE - hitbox.width) / 2;
+            stepTowards((tileX + flowField.getStepX(tileX, tileY)) * TILE_SIZE + inset,
+                    (tileY + flowField.getStepY(tileX, tileY)) * TILE_SIZE + inset);
+        } else {
+            stepTowards(player.getX(), player.getY()); // Same tile as the player, or no path at all
+        }
 
-        if (x < playerX && canMoveTo(x + MOVEMENT_SPEED, y)) {
+        moving = true;
+        updateHitbox();
+    }
+
+    // Greedy single step along each axis toward a point
+    private void stepTowards(int targetX, int targetY) {
+        if (x < targetX && canMoveTo(x + MOVEMENT_SPEED, y)) {
             x += MOVEMENT_SPEED;
             facingRight = true;
-        } else if (x > playerX && canMoveTo(x - MOVEMENT_SPEED, y)) {
+        } else if (x > targetX && canMoveTo(x - MOVEMENT_SPEED, y)) {
             x -= MOVEMENT_SPEED;
             facingRight = false;
         }
 
-        if (y < playerY && canMoveTo(x, y + MOVEMENT_SPEED)) {
+        if (y < targetY && canMoveTo(x, y + MOVEMENT_SPEED)) {
             y += MOVEMENT_SPEED;
-        } else if (y > playerY && canMoveTo(x, y - MOVEMENT_SPEED)) {
+        } else if (y > targetY && canMoveTo(x, y - MOVEMENT_SPEED)) {
             y -= MOVEMENT_SPEED;
         }
-
-        moving = true;
-        updateHitbox();
     }
 
-    private void retreatFromPlayer() {
+    private void retreatFromPlayer(LineOfSight lineOfSight) {
         int playerX = player.getX();
         int playerY = player.getY();
 
@@ -197,31 +242,19 @@ public class Guardian extends Enemy {
         currentLineOfSight = LINE_OF_SIGHT * 2;
 
         // Continue retreating until the player is out of sight
-        if (isPlayerInSight()) {
-            boolean moved = false;
-
+        if (isPlayerInSight(lineOfSight)) {
             if (x < playerX && canMoveTo(x - MOVEMENT_SPEED, y)) {
                 x -= MOVEMENT_SPEED;
                 facingRight = false;
-                moved = true;
             } else if (x > playerX && canMoveTo(x + MOVEMENT_SPEED, y)) {
                 x += MOVEMENT_SPEED;
                 facingRight = true;
-                moved = true;
             }
 
             if (y < playerY && canMoveTo(x, y - MOVEMENT_SPEED)) {
                 y -= MOVEMENT_SPEED;
-                moved = true;
             } else if (y > playerY && canMoveTo(x, y + MOVEMENT_SPEED)) {
                 y += MOVEMENT_SPEED;
-                moved = true;
-            }
-
-            if (!moved) {
-                System.out.println("Retreat blocked"); // Debugging
-            } else {
-                System.out.println("Retreat successful"); // Debugging
             }
 
             moving = true; // Ensure moving is set to true during retreat
@@ -230,7 +263,7 @@ public class Guardian extends Enemy {
             // Set to idle after retreating
             moving = false;
             state = GuardianState.IDLE;
-            idleStartTime = System.currentTimeMillis();
+            idleTicks = 0;
             // Reset the line of sight back to normal
             currentLineOfSight = LINE_OF_SIGHT;
         }
@@ -275,9 +308,10 @@ public class Guardian extends Enemy {
         }
     }
 
+    // Step away from another guardian's start-of-tick position
     private void retreatFromGuardian(Guardian other) {
-        int otherX = other.getX();
-        int otherY = other.getY();
+        int otherX = other.prevX;
+        int otherY = other.prevY;
 
         if (x < otherX && canMoveTo(x - MOVEMENT_SPEED, y)) {
             x -= MOVEMENT_SPEED;
@@ -303,42 +337,68 @@ public class Guardian extends Enemy {
 
     @Override
     public void render(Graphics g) {
-        BufferedImage frame;
+        g.drawImage(currentImage(), x + frameOffset(), y, null);
+    }
 
-        // Use walking frames when moving (wandering, pursuing, or retreating)
-        if (moving) {
-            frame = walkingFrames[currentFrame];
-        } else {
-            frame = idleFrames[currentFrame];
-        }
+    // Queue this tick's frame for the renderer
+    public void addTo(RenderSnapshot snapshot) {
+        int offset = frameOffset();
+        snapshot.addSprite(RenderSnapshot.GUARDIAN, currentImage(), x + offset, y, prevX + offset, prevY);
+    }
 
-        if (facingRight) {
-            g.drawImage(frame, x, y, null);
-        } else {
-            g.drawImage(flipHorizontally(frame), x + 10, y, null);
-        }
+    // Walking frames while wandering, pursuing or retreating
+    private BufferedImage currentImage() {
+        return moving ? walkingFrames.getFrame(currentFrame, facingRight) : idleFrames.getFrame(currentFrame, facingRight);
+    }
 
-        g.setColor(Color.RED);
+    // Mirrored frames are drawn 10 pixels to the right to line up with the hitbox
+    private int frameOffset() {
+        return facingRight ? 0 : 10;
     }
 
-    private BufferedImage flipHorizontally(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    // Copy the state a save needs. Animation frames are not saved.
+    public void saveTo(SaveSnapshot snapshot) {
+        snapshot.addGuardian(id, x, y, health, state.ordinal(), wanderTime, wanderDirection, idleTicks,
+                attackCooldown, currentLineOfSight, facingRight);
+    }
 
-        BufferedImage flipped = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = flipped.createGraphics();
+    // Take over a saved guardian's state, at rest where it was saved
+    public void restore(SaveSnapshot snapshot, int index) {
+        id = snapshot.getGuardian(index, SaveSnapshot.GUARDIAN_ID);
+        x = prevX = snapshot.getGuardian(index, SaveSnapshot.GUARDIAN_X);
+        y = prevY = snapshot.getGuardian(index, SaveSnapshot.GUARDIAN_Y);
+        health = snapshot.getGuardian(index, SaveSnapshot.GUARDIAN_HEALTH);
+        state = GuardianState.values()[snapshot.getGuardian(index, SaveSnapshot.GUARDIAN_STATE)];
+        wanderTime = snapshot.getGuardian(index, SaveSnapshot.GUARDIAN_WANDER_TIME);
+        wanderDirection = snapshot.getGuardian(index, SaveSnapshot.GUARDIAN_WANDER_DIRECTION);
+        idleTicks = snapshot.getGuardian(index, SaveSnapshot.GUARDIAN_IDLE_TICKS);
+        attackCooldown = snapshot.getGuardian(index, SaveSnapshot.GUARDIAN_ATTACK_COOLDOWN);
+        currentLineOfSight = snapshot.getGuardian(index, SaveSnapshot.GUARDIAN_LINE_OF_SIGHT);
+        facingRight = snapshot.getGuardian(index, SaveSnapshot.GUARDIAN_FACING_RIGHT) != 0;
+        updateHitbox();
+    }
 
-        g2.drawImage(image, width + 3, 0, -width, height, null);
-        g2.dispose();
+    public int getId() {
+        return id;
+    }
 
-        return flipped;
+    public void setId(int id) {
+        this.id = id;
     }
 
     public Rectangle getHitbox() {
         return hitbox;
     }
 
-    public boolean isColliding(int[][] map, int tileSize) {
+    public void setOnScreen(boolean onScreen) {
+        this.onScreen = onScreen;
+    }
+
+    public boolean isOnScreen() {
+        return onScreen;
+    }
+
+    public boolean isColliding(TileMap map, int tileSize) {
         // Check the tiles around the current position to ensure no collision with walls
         int tileX = x / tileSize;
         int tileY = y / tileSize;
@@ -364,15 +424,25 @@ public class Guardian extends Enemy {
     }
 
     private boolean isTileWalkable(int tileX, int tileY) {
-        // Assuming 0 is a wall in the map
-        return tileX >= 0 && tileY >= 0 && tileX < map[0].length && tileY < map.length && map[tileY][tileX] == 1;
+        return map.isWalkable(tileX, tileY);
     }
 
-    public void separateFromOthers(List<Guardian> guardians) {
-        for (Guardian other : guardians) {
+    // The spatial hash holds indices into guardians, bucketed by SEPARATION_DISTANCE cells.
+    // Neighbours are compared at prevX/prevY, which nobody writes during the update.
+    public void separateFromOthers(List<Guardian> guardians, SpatialHash spatialHash) {
+        int found = spatialHash.query(x, y, SEPARATION_DISTANCE, neighbours);
+        if (found > neighbours.length) {
+            neighbours = new int[Integer.highestOneBit(found) << 1];
+            found = spatialHash.query(x, y, SEPARATION_DISTANCE, neighbours);
+        }
+
+        int separationSquared = SEPARATION_DISTANCE * SEPARATION_DISTANCE;
+        for (int i = 0; i < found; i++) {
+            Guardian other = guardians.get(neighbours[i]);
             if (other != this) {
-                double distance = getDistance(x, y, other.x, other.y);
-                if (distance < SEPARATION_DISTANCE) {
+                int dx = other.prevX - x;
+                int dy = other.prevY - y;
+                if (dx * dx + dy * dy < separationSquared) {
                     retreatFromGuardian(other);
                 }
             }
@@ -0,0 +1,84 @@
+package com.poguesquest.entities;
+
+import com.poguesquest.utils.SpatialHash;
+import com.poguesquest.world.FlowField;
+import com.poguesquest.world.LineOfSight;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Two-phase guardian tick. The intent phase runs Guardian.update over fork-join in fixed
+// index chunks; each guardian reads the others only at their frozen start-of-tick positions
+// and writes only itself. The apply phase then deals the queued attacks in list order on the
+// calling thread, so the result is the same for any number of threads.
+public class GuardianBatch {
+    private static final int CHUNK_SIZE = 64; // Guardians per fork-join leaf task
+    private final ForkJoinPool pool; // Null when running single-threaded
+
+    public GuardianBatch(int threads) {
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    // The spatial hash must hold indices into guardians at their start-of-tick positions,
+    // and the flow field and line of sight target must not change until this returns
+    public void update(List<Guardian> guardians, SpatialHash spatialHash, FlowField flowField, LineOfSight lineOfSight) {
+        if (pool == null || guardians.size() <= CHUNK_SIZE) {
+            for (int i = 0; i < guardians.size(); i++) {
+                guardians.get(i).update(guardians, spatialHash, flowField, lineOfSight); // Not worth waking the pool
+            }
+        } else {
+            pool.invoke(new IntentTask(guardians, spatialHash, flowField, lineOfSight, 0, guardians.size()));
+        }
+
+        for (int i = 0; i < guardians.size(); i++) {
+            guardians.get(i).applyIntent();
+        }
+    }
+
+    public int getParallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static class IntentTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Guardian> guardians;
+        private final SpatialHash spatialHash;
+        private final FlowField flowField;
+        private final LineOfSight lineOfSight;
+        private final int from, to;
+
+        IntentTask(List<Guardian> guardians, SpatialHash spatialHash, FlowField flowField, LineOfSight lineOfSight, int from, int to) {
+            this.guardians = guardians;
+            this.spatialHash = spatialHash;
+            this.flowField = flowField;
+            this.lineOfSight = lineOfSight;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    guardians.get(i).update(guardians, spatialHash, flowField, lineOfSight);
+                }
+                return;
+            }
+            // Split on a chunk boundary so leaves are always whole chunks
+            int middle = from + (to - from) / CHUNK_SIZE / 2 * CHUNK_SIZE;
+            if (middle == from) {
+                middle += CHUNK_SIZE;
+            }
+            invokeAll(new IntentTask(guardians, spatialHash, flowField, lineOfSight, from, middle),
+                    new IntentTask(guardians, spatialHash, flowField, lineOfSight, middle, to));
+        }
+    }
+}
\ No newline at end of file
@@ -2,9 +2,13 @@ package com.poguesquest.entities;
 
 import com.poguesquest.items.Gun;
 import com.poguesquest.items.Weapon;
-import com.poguesquest.utils.SpriteSheet;
+import com.poguesquest.utils.FrameSet;
 import com.poguesquest.utils.Camera;
 import com.poguesquest.utils.Collider;
+import com.poguesquest.utils.RenderSnapshot;
+import com.poguesquest.utils.SaveSnapshot;
+import com.poguesquest.world.LineOfSight;
+import com.poguesquest.world.TileMap;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -15,8 +19,8 @@ public class Player extends Entity {
     private int health = MAX_HEALTH;
     private int ammo = 30;
     private int tileSize;
-    private BufferedImage[] walkingFrames;
-    private BufferedImage[] idleFrames;
+    private FrameSet walkingFrames;
+    private FrameSet idleFrames;
     private int currentFrame;
     private int frameDelay;
     private boolean moving;
@@ -27,8 +31,9 @@ public class Player extends Entity {
     private Camera camera;
     private int lineOfSight = 50; // Line of sight in pixels
     private boolean isDamaged; // Flag to indicate damage state
-    private long damageTime; // Time when damage was taken
-    private static final int DAMAGE_DURATION = 200; // Duration of the damage effect in milliseconds
+    private int damageTicks; // Ticks left on the damage effect
+    private static final int DAMAGE_DURATION = 12; // Duration of the damage effect in ticks (200 ms at 60 ticks per second)
+    private final BufferedImage damageFlash; // Half transparent white square drawn over the player while damaged
 
     public Player(int startX, int startY, BufferedImage walkingSpriteSheet, BufferedImage idleSpriteSheet, int tileSize, Camera camera) {
         super(startX, startY, tileSize, tileSize);
@@ -36,25 +41,22 @@ public class Player extends Entity {
         this.camera = camera;
         this.collider = new Collider(x + 5, y + 5, 25, 25);
 
-        // Initialize sprite frames
-        SpriteSheet walkingSheet = new SpriteSheet(walkingSpriteSheet);
-        walkingFrames = new BufferedImage[8];
-        for (int i = 0; i < 8; i++) {
-            walkingFrames[i] = walkingSheet.getPlayerFrame(i);
-        }
-
-        SpriteSheet idleSheet = new SpriteSheet(idleSpriteSheet);
-        idleFrames = new BufferedImage[8];
-        for (int i = 0; i < 8; i++) {
-            idleFrames[i] = idleSheet.getPlayerFrame(i);
-        }
+        // Initialize sprite frames, mirrored copies are built once per sheet
+        walkingFrames = FrameSet.of(walkingSpriteSheet);
+        idleFrames = FrameSet.of(idleSpriteSheet);
 
         this.facingRight = true;
         this.cursorPosition = new Point(0, 0);
+
+        damageFlash = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = damageFlash.createGraphics();
+        g2.setColor(new Color(255, 255, 255, 128)); // White color with half transparency
+        g2.fillRect(0, 0, tileSize, tileSize);
+        g2.dispose();
     }
 
     // Update method with movement and collision detection
-    public void update(boolean up, boolean down, boolean left, boolean right, Point cursor, int[][] map) {
+    public void update(boolean up, boolean down, boolean left, boolean right, Point cursor, TileMap map) {
         if (isDead()) {
             // Skip updating controls if the player is dead
             moving = false;
@@ -66,20 +68,21 @@ public class Player extends Entity {
         int oldX = x;
         int oldY = y;
 
-        if (up && y - SPEED >= 0) {
+        // No bounds here, the world's outer wall stops the player
+        if (up) {
             y -= SPEED;
             moving = true;
         }
-        if (down && y + SPEED + tileSize <= 2048) {
+        if (down) {
             y += SPEED;
             moving = true;
         }
-        if (left && x - SPEED >= 0) {
+        if (left) {
             x -= SPEED;
             moving = true;
             facingRight = false;
         }
-        if (right && x + SPEED + tileSize <= 2048) {
+        if (right) {
             x += SPEED;
             moving = true;
             facingRight = true;
@@ -105,9 +108,9 @@ public class Player extends Entity {
         if (frameDelay > 2) {
             currentFrame++;
             if (moving) {
-                currentFrame %= walkingFrames.length;
+                currentFrame %= walkingFrames.size();
             } else {
-                currentFrame %= idleFrames.length;
+                currentFrame %= idleFrames.size();
             }
             frameDelay = 0;
         }
@@ -116,16 +119,25 @@ public class Player extends Entity {
             gun.updateCursorPosition(cursorPosition);
         }
 
+        if (equippedWeapon != null) {
+            equippedWeapon.tick();
+        }
+
         // Reset damage state after duration
-        if (isDamaged && System.currentTimeMillis() - damageTime > DAMAGE_DURATION) {
+        if (isDamaged && --damageTicks <= 0) {
             isDamaged = false;
         }
     }
 
-    // Check if an enemy is in sight
-    public boolean isEnemyInSight(Enemy enemy) {
+    // Check if an enemy is in sight. The cache is aimed at the player's tile, and rays are
+    // symmetric, so the enemy's cached view of us is our view of it.
+    public boolean isEnemyInSight(Enemy enemy, LineOfSight sight) {
         double distance = getDistance(x, y, enemy.getX(), enemy.getY());
-        return distance <= lineOfSight;
+        if (distance > lineOfSight) {
+            return false;
+        }
+        Rectangle enemyHitbox = enemy.getHitbox();
+        return sight.canSeeTarget((int) enemyHitbox.getCenterX() / tileSize, (int) enemyHitbox.getCenterY() / tileSize);
     }
 
     // Calculate distance between two points
@@ -142,7 +154,7 @@ public class Player extends Entity {
         } else {
             // Set damage state
             isDamaged = true;
-            damageTime = System.currentTimeMillis();
+            damageTicks = DAMAGE_DURATION;
         }
     }
 
@@ -164,6 +176,11 @@ public class Player extends Entity {
         return new Point(gunX, gunY);
     }
 
+    // Gun position interpolated between the previous and current tick
+    public Point getGunPosition(double alpha) {
+        return new Point(getRenderX(alpha) + 10, getRenderY(alpha) + 10);
+    }
+
     // Get the center of the hitbox
     public Point getHitboxCenter() {
         return new Point(collider.getHitbox().x + collider.getHitbox().width / 2, collider.getHitbox().y + collider.getHitbox().height / 2);
@@ -185,45 +202,63 @@ public class Player extends Entity {
     // Equip a weapon
     public void equipWeapon(Weapon weapon) {
         this.equippedWeapon = weapon;
+        weapon.prewarmRotations();
     }
 
-    // Render the player
+    // Render the player at its current position
     public void render(Graphics g) {
-        BufferedImage frame;
+        int offset = frameOffset();
+        g.drawImage(currentImage(), x + offset, y, null);
 
-        if (moving) {
-            frame = walkingFrames[currentFrame];
-        } else {
-            frame = idleFrames[currentFrame];
+        if (isDamaged) {
+            g.drawImage(damageFlash, x, y, null);
         }
+    }
 
-        if (facingRight) {
-            g.drawImage(frame, x, y, null);
-        } else {
-            g.drawImage(flipHorizontally(frame), x + 10, y, null);
-        }
+    // Queue this tick's frame and the damage flash for the renderer
+    public void addTo(RenderSnapshot snapshot) {
+        int offset = frameOffset();
+        snapshot.addSprite(RenderSnapshot.PLAYER, currentImage(), x + offset, y, prevX + offset, prevY);
 
-        // Damage flash effect
         if (isDamaged) {
-            g.setColor(new Color(255, 255, 255, 128)); // White color with half transparency
-            g.fillRect(x, y, tileSize, tileSize);
+            snapshot.addSprite(RenderSnapshot.EFFECT, damageFlash, x, y, prevX, prevY);
         }
+    }
 
-        g.setColor(Color.RED);
+    private BufferedImage currentImage() {
+        return moving ? walkingFrames.getFrame(currentFrame, facingRight) : idleFrames.getFrame(currentFrame, facingRight);
     }
 
-    // Flip an image horizontally
-    private BufferedImage flipHorizontally(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    // Mirrored frames are drawn 10 pixels to the right to line up with the hitbox
+    private int frameOffset() {
+        return facingRight ? 0 : 10;
+    }
 
-        BufferedImage flipped = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = flipped.createGraphics();
+    // Copy the state a save needs, the gun's included
+    public void saveTo(SaveSnapshot snapshot) {
+        snapshot.setPlayer(x, y, health, ammo, facingRight, isDamaged ? damageTicks : 0);
+        if (equippedWeapon instanceof Gun gun) {
+            gun.saveTo(snapshot);
+        }
+    }
 
-        g2.drawImage(image, width + 3, 0, -width, height, null);
-        g2.dispose();
+    // Take over a saved player's state. A player saved unarmed, after dying, loses the weapon.
+    public void restore(SaveSnapshot snapshot) {
+        x = prevX = snapshot.getPlayer(SaveSnapshot.PLAYER_X);
+        y = prevY = snapshot.getPlayer(SaveSnapshot.PLAYER_Y);
+        health = snapshot.getPlayer(SaveSnapshot.PLAYER_HEALTH);
+        ammo = snapshot.getPlayer(SaveSnapshot.PLAYER_AMMO);
+        facingRight = snapshot.getPlayer(SaveSnapshot.PLAYER_FACING_RIGHT) != 0;
+        damageTicks = snapshot.getPlayer(SaveSnapshot.PLAYER_DAMAGE_TICKS);
+        isDamaged = damageTicks > 0;
+        updateHitbox();
+        collider.setPosition(x + 6, y + 10);
 
-        return flipped;
+        if (snapshot.getPlayer(SaveSnapshot.PLAYER_ARMED) == 0) {
+            equippedWeapon = null;
+        } else if (equippedWeapon instanceof Gun gun) {
+            gun.restore(snapshot);
+        }
     }
 
     // Update the cursor position
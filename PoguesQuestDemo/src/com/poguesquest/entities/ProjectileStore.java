@@ -0,0 +1,207 @@
+package com.poguesquest.entities;
+
+import com.poguesquest.ImageLoader;
+import com.poguesquest.utils.RenderSnapshot;
+import com.poguesquest.utils.SaveSnapshot;
+import com.poguesquest.world.TileMap;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+// All live projectiles of one owner, stored as parallel primitive arrays instead of
+// one object per bullet. Live slots are always packed at [0, size), and dead ones are
+// swap-removed, so updates are a single linear pass over the arrays.
+public class ProjectileStore {
+    public static final int SIZE = 5; // Projectile hitbox edge in pixels
+    private static final int SPEED = 10;
+    private static final int LIFETIME = 180; // Ticks before a projectile that hit nothing expires
+    private static final int HIT_EFFECT_FRAME_DELAY = 5; // Ticks per hit effect frame
+    private static final byte FLYING = 0;
+    private static final byte HIT_EFFECT = 1;
+
+    private int[] x, y;
+    private int[] prevX, prevY;
+    private int[] velocityX, velocityY;
+    private int[] life;         // Remaining ticks of flight
+    private byte[] state;
+    private int[] effectFrame;  // Current hit effect frame
+    private int[] effectTimer;  // Ticks spent on the current hit effect frame
+    private int[] serial;       // Stays with the projectile when swap-remove moves it
+    private int nextSerial;
+    private int size;
+
+    private final BufferedImage bulletImage;
+    private final BufferedImage[] hitEffectFrames;
+    private int usedSlots; // Slots that have ever held a projectile; those past size are free for reuse
+    private int hits;      // Spawns served by the slot of a removed projectile
+    private int misses;    // Spawns that needed a slot never used before
+
+    public ProjectileStore(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        x = new int[capacity];
+        y = new int[capacity];
+        prevX = new int[capacity];
+        prevY = new int[capacity];
+        velocityX = new int[capacity];
+        velocityY = new int[capacity];
+        life = new int[capacity];
+        state = new byte[capacity];
+        effectFrame = new int[capacity];
+        effectTimer = new int[capacity];
+        serial = new int[capacity];
+
+        // Shared images from the asset cache
+        bulletImage = ImageLoader.loadBulletImage();
+        hitEffectFrames = ImageLoader.loadHitEffectFrames();
+    }
+
+    public void spawn(int startX, int startY, double firingAngle) {
+        if (size < usedSlots) {
+            hits++;
+        } else {
+            if (size == x.length) {
+                grow();
+            }
+            usedSlots++;
+            misses++;
+        }
+
+        int i = size++;
+        x[i] = prevX[i] = startX;
+        y[i] = prevY[i] = startY;
+        velocityX[i] = (int) (Math.cos(firingAngle) * SPEED);
+        velocityY[i] = (int) (Math.sin(firingAngle) * SPEED);
+        life[i] = LIFETIME;
+        state[i] = FLYING;
+        effectFrame[i] = 0;
+        effectTimer[i] = 0;
+        serial[i] = nextSerial++;
+    }
+
+    // Move every projectile one tick, turn wall hits into hit effects and drop finished ones
+    public void update(TileMap map, int tileSize) {
+        int effectFrames = hitEffectFrames.length;
+
+        for (int i = 0; i < size; i++) {
+            prevX[i] = x[i];
+            prevY[i] = y[i];
+
+            if (state[i] == FLYING) {
+                int px = x[i] += velocityX[i];
+                int py = y[i] += velocityY[i];
+
+                if (--life[i] <= 0 || px < 0 || py < 0 || !map.isInside(px / tileSize, py / tileSize)) {
+                    remove(i--); // Expired or left the map, no effect
+                    continue;
+                }
+
+                // Same test as Collider.isColliding, inlined to avoid touching objects
+                if (!map.isAreaWalkable(px / tileSize, py / tileSize, (px + SIZE) / tileSize, (py + SIZE) / tileSize)) {
+                    state[i] = HIT_EFFECT;
+                }
+            } else if (++effectTimer[i] >= HIT_EFFECT_FRAME_DELAY) {
+                effectTimer[i] = 0;
+                if (++effectFrame[i] >= effectFrames) {
+                    remove(i--);
+                }
+            }
+        }
+    }
+
+    // Swap the last projectile into slot i
+    public void remove(int i) {
+        int last = --size;
+        x[i] = x[last];
+        y[i] = y[last];
+        prevX[i] = prevX[last];
+        prevY[i] = prevY[last];
+        velocityX[i] = velocityX[last];
+        velocityY[i] = velocityY[last];
+        life[i] = life[last];
+        state[i] = state[last];
+        effectFrame[i] = effectFrame[last];
+        effectTimer[i] = effectTimer[last];
+        serial[i] = serial[last];
+    }
+
+    // Queue every projectile, flying or showing its hit effect, for the renderer
+    public void addTo(RenderSnapshot snapshot) {
+        for (int i = 0; i < size; i++) {
+            BufferedImage image = state[i] == FLYING ? bulletImage : hitEffectFrames[effectFrame[i]];
+            snapshot.addSprite(RenderSnapshot.PROJECTILE, image, x[i], y[i], prevX[i], prevY[i]);
+        }
+        snapshot.setProjectileStats(size, hits, misses);
+    }
+
+    public void saveTo(SaveSnapshot snapshot) {
+        for (int i = 0; i < size; i++) {
+            snapshot.addProjectile(x[i], y[i], velocityX[i], velocityY[i], life[i], state[i], effectFrame[i], effectTimer[i]);
+        }
+    }
+
+    // Replace every projectile with the saved ones
+    public void restore(SaveSnapshot snapshot) {
+        size = 0;
+        for (int p = 0; p < snapshot.getProjectileCount(); p++) {
+            if (size == x.length) {
+                grow();
+            }
+            int i = size++;
+            usedSlots = Math.max(usedSlots, size);
+            x[i] = prevX[i] = snapshot.getProjectile(p, SaveSnapshot.PROJECTILE_X);
+            y[i] = prevY[i] = snapshot.getProjectile(p, SaveSnapshot.PROJECTILE_Y);
+            velocityX[i] = snapshot.getProjectile(p, SaveSnapshot.PROJECTILE_VELOCITY_X);
+            velocityY[i] = snapshot.getProjectile(p, SaveSnapshot.PROJECTILE_VELOCITY_Y);
+            life[i] = snapshot.getProjectile(p, SaveSnapshot.PROJECTILE_LIFE);
+            state[i] = (byte) snapshot.getProjectile(p, SaveSnapshot.PROJECTILE_STATE);
+            effectFrame[i] = snapshot.getProjectile(p, SaveSnapshot.PROJECTILE_EFFECT_FRAME);
+            effectTimer[i] = snapshot.getProjectile(p, SaveSnapshot.PROJECTILE_EFFECT_TIMER);
+            serial[i] = nextSerial++;
+        }
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        velocityX = Arrays.copyOf(velocityX, capacity);
+        velocityY = Arrays.copyOf(velocityY, capacity);
+        life = Arrays.copyOf(life, capacity);
+        state = Arrays.copyOf(state, capacity);
+        effectFrame = Arrays.copyOf(effectFrame, capacity);
+        effectTimer = Arrays.copyOf(effectTimer, capacity);
+        serial = Arrays.copyOf(serial, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Only flying projectiles can hit anything, hit effects are purely visual
+    public boolean isFlying(int i) {
+        return state[i] == FLYING;
+    }
+
+    public int getX(int i) {
+        return x[i];
+    }
+
+    public int getY(int i) {
+        return y[i];
+    }
+
+    // A number unique to the projectile in slot i, for tracking it across ticks
+    public int getSerial(int i) {
+        return serial[i];
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+}
\ No newline at end of file
@@ -1,40 +1,41 @@
 package com.poguesquest.items;
 
 import java.awt.*;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.SplittableRandom;
 
-import com.poguesquest.entities.Bullet;
-import com.poguesquest.entities.Entity;
 import com.poguesquest.entities.Player;
+import com.poguesquest.entities.ProjectileStore;
 import com.poguesquest.utils.Camera;
-import com.poguesquest.utils.RotationUtils;
+import com.poguesquest.utils.RenderSnapshot;
+import com.poguesquest.utils.SaveSnapshot;
+import com.poguesquest.world.TileMap;
 
 public class Gun extends Weapon {
     private double angle;
     private Point2D gunTip;
     private int ammo;
-    private ArrayList<Bullet> bullets;
+    private ProjectileStore projectiles;
     private Point cursorPosition;
-    private long lastShotTime;
-    private int fireRate;
+    private int shotCooldown; // Ticks until the gun can fire again
+    private int fireRate; // Ticks between shots
+    private SplittableRandom random; // Spread stream, split from the world seed
     private BufferedImage gunSprite;
     private BufferedImage gunHorizontalFlipSprite;
     private Camera camera;
     private int orbitRadius;
 
-    public Gun(String name, BufferedImage sprite, BufferedImage flipSprite, int damage, int ammo, Camera camera) {
+    public Gun(String name, BufferedImage sprite, BufferedImage flipSprite, int damage, int ammo, Camera camera, SplittableRandom random) {
         super(name, sprite, damage);
         this.angle = 0;
         this.gunTip = new Point2D.Double(0, 0);
         this.ammo = ammo;
-        this.bullets = new ArrayList<>();
+        this.projectiles = new ProjectileStore(64);
         this.cursorPosition = new Point(0, 0);
-        this.lastShotTime = 0;
-        this.fireRate = 500; // Adjust fire rate according to the gun type
+        this.shotCooldown = 0;
+        this.fireRate = 30; // Adjust fire rate according to the gun type (500 ms at 60 ticks per second)
+        this.random = random;
         this.gunSprite = sprite;
         this.gunHorizontalFlipSprite = flipSprite;
         this.camera = camera;
@@ -64,43 +65,44 @@ public class Gun extends Weapon {
 
     @Override
     public void render(Graphics g, int playerX, int playerY, boolean facingRight) {
-        updateGunTip(new Point(playerX, playerY));
-
-        boolean mirrorHorizontal = !facingRight;
-
-        double renderAngle = angle;
-        if (mirrorHorizontal) {
-            renderAngle = Math.PI - angle;
-        }
-
-        BufferedImage rotatedGun = RotationUtils.rotateImage(gunSprite, renderAngle);
+        BufferedImage rotatedGun = getRotatedSprite(facingRight);
+        g.drawImage(rotatedGun, getSpriteX(playerX, rotatedGun, facingRight), getSpriteY(playerY, rotatedGun), null);
+    }
 
-        int renderX = (int) gunTip.getX() + 5 - rotatedGun.getWidth() / 2;
-        int renderY = (int) gunTip.getY() + 15 - rotatedGun.getHeight() / 2;
+    // Queue the gun sprite for the renderer, orbiting the player's previous and current gun positions
+    public void addTo(RenderSnapshot snapshot, Point previous, Point current, boolean facingRight) {
+        BufferedImage rotatedGun = getRotatedSprite(facingRight);
+        snapshot.addSprite(RenderSnapshot.EFFECT, rotatedGun,
+                getSpriteX(current.x, rotatedGun, facingRight), getSpriteY(current.y, rotatedGun),
+                getSpriteX(previous.x, rotatedGun, facingRight), getSpriteY(previous.y, rotatedGun));
+    }
 
-        Graphics2D g2d = (Graphics2D) g;
-        AffineTransform originalTransform = g2d.getTransform();
+    // Mirroring is baked into the cached image, so drawing is a single blit
+    private BufferedImage getRotatedSprite(boolean facingRight) {
+        boolean mirrorHorizontal = !facingRight;
+        double renderAngle = mirrorHorizontal ? Math.PI - angle : angle;
+        return getRotatedSprite(renderAngle, mirrorHorizontal);
+    }
 
-        if (mirrorHorizontal) {
-            g2d.translate(renderX + rotatedGun.getWidth(), renderY);
-            g2d.scale(-1, 1);
-            g2d.drawImage(rotatedGun, 0 - 15, 0, null);
-        } else {
-            g2d.drawImage(rotatedGun, renderX, renderY, null);
-        }
+    // Top-left corner of the rotated sprite, orbiting the given gun position at the current angle
+    private int getSpriteX(int centerX, BufferedImage rotatedGun, boolean facingRight) {
+        int gunTipX = (int) (centerX + Math.cos(angle) * orbitRadius);
+        int renderX = gunTipX + 5 - rotatedGun.getWidth() / 2;
+        return facingRight ? renderX : renderX + 15;
+    }
 
-        g2d.setTransform(originalTransform);
+    private int getSpriteY(int centerY, BufferedImage rotatedGun) {
+        int gunTipY = (int) (centerY + Math.sin(angle) * orbitRadius);
+        return gunTipY + 15 - rotatedGun.getHeight() / 2;
     }
 
     @Override
     public void attack(Player player) {
-        long currentTime = System.currentTimeMillis();
-
-        if (currentTime - lastShotTime < fireRate) {
+        if (shotCooldown > 0) {
             return;
         }
 
-        lastShotTime = currentTime;
+        shotCooldown = fireRate;
         updateGunTip(player.getGunPosition());
 
         if (ammo > 0) {
@@ -110,35 +112,42 @@ public class Gun extends Weapon {
             
             // Add some random spread to the bullets
             double spread = Math.toRadians(10); // 5 degrees of spread
-            firingAngle += (Math.random() - 1) * spread;
+            firingAngle += (random.nextDouble() - 1) * spread;
 
-            Bullet bullet = new Bullet(
+            projectiles.spawn(
                 (int) gunTip.getX() + 10, (int) gunTip.getY() + 8,
                 firingAngle
             );
-
-            bullets.add(bullet);
         } else {
             System.out.println("Out of ammo!");
         }
     }
 
-    public void updateBullets(int[][] map, int tileSize) {
-        List<Entity> emptyEntitiesList = new ArrayList<>();
+    @Override
+    public void tick() {
+        if (shotCooldown > 0) {
+            shotCooldown--;
+        }
+    }
 
-        for (int i = 0; i < bullets.size(); i++) {
-            Bullet bullet = bullets.get(i);
-            bullet.update(map, tileSize, emptyEntitiesList);
+    public void updateBullets(TileMap map, int tileSize) {
+        projectiles.update(map, tileSize);
+    }
 
-            if (!bullet.isAlive()) {
-                bullets.remove(i);
-                i--;
-            }
-        }
+    // Ammo and cooldown go with the player's record, every live projectile after it
+    public void saveTo(SaveSnapshot snapshot) {
+        snapshot.setGun(ammo, shotCooldown);
+        projectiles.saveTo(snapshot);
+    }
+
+    public void restore(SaveSnapshot snapshot) {
+        ammo = snapshot.getPlayer(SaveSnapshot.GUN_AMMO);
+        shotCooldown = snapshot.getPlayer(SaveSnapshot.GUN_COOLDOWN);
+        projectiles.restore(snapshot);
     }
 
-    public ArrayList<Bullet> getBullets() {
-        return bullets;
+    public ProjectileStore getProjectiles() {
+        return projectiles;
     }
 
     public void attack1(Player player) {
@@ -3,11 +3,13 @@ package com.poguesquest.items;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import com.poguesquest.entities.Player;
+import com.poguesquest.utils.RotationCache;
 
 public abstract class Weapon {
     protected String name;    // Weapon name
     protected BufferedImage sprite; // Weapon sprite (image)
     protected int damage;    // Weapon damage
+    private RotationCache rotations; // Rotated copies of the sprite, built on first use
 
     // Constructor for Weapon class
     public Weapon(String name, BufferedImage sprite, int damage) {
@@ -19,9 +21,30 @@ public abstract class Weapon {
     // Abstract render method - every weapon must implement it
     public abstract void render(Graphics g, int playerX, int playerY, boolean facingRight);
 
+    // Called once per simulation tick, for cooldowns and other timers
+    public void tick() {
+    }
+
     // Abstract attack method - to be implemented by subclasses (e.g., Gun, Melee)
     public abstract void attack(Player player);
 
+    // Weapon sprite rotated to the given angle, served from a shared per-sprite cache
+    protected BufferedImage getRotatedSprite(double angle, boolean mirror) {
+        return getRotations().get(angle, mirror);
+    }
+
+    // Build the rotations up front so the first frame never has to
+    public void prewarmRotations() {
+        getRotations();
+    }
+
+    private RotationCache getRotations() {
+        if (rotations == null) {
+            rotations = RotationCache.of(sprite);
+        }
+        return rotations;
+    }
+
     // Getter for name
     public String getName() {
         return name;
@@ -1,11 +1,15 @@
 package com.poguesquest.utils;
 
+import java.awt.Rectangle;
+
 public class Camera {
     private double x; // Camera's top-left x-coordinate in world space
     private double y; // Camera's top-left y-coordinate in world space
+    private double prevX, prevY; // Position at the start of the current tick
     private final int viewportWidth; // Width of the visible area
     private final int viewportHeight; // Height of the visible area
     private double scaleFactor; // Zoom level (2.5 = 2.5x size)
+    public static final int VIEW_MARGIN = 48; // Extra world pixels kept around the view so sprites don't pop at the edges
 
     // Constructor
     public Camera(int viewportWidth, int viewportHeight, double scaleFactor) {
@@ -14,6 +18,21 @@ public class Camera {
         this.scaleFactor = scaleFactor;
     }
 
+    // Copy of another camera, e.g. the view held by a render snapshot
+    public Camera(Camera other) {
+        this(other.viewportWidth, other.viewportHeight, other.scaleFactor);
+        copyFrom(other);
+    }
+
+    // Take over the position and zoom of another camera with the same viewport
+    public void copyFrom(Camera other) {
+        x = other.x;
+        y = other.y;
+        prevX = other.prevX;
+        prevY = other.prevY;
+        scaleFactor = other.scaleFactor;
+    }
+
     // Update the camera position to center on the player's hitbox center
     public void centerOnPlayer(int playerCenterX, int playerCenterY) {
         x = playerCenterX - (viewportWidth / 2.0) / scaleFactor;
@@ -29,6 +48,21 @@ public class Camera {
         y = Math.max(0, Math.min(y, maxY));
     }
 
+    // Remember where the camera was before this tick moves it
+    public void savePreviousPosition() {
+        prevX = x;
+        prevY = y;
+    }
+
+    // Camera position blended between the previous and current tick
+    public double getRenderX(double alpha) {
+        return prevX + (x - prevX) * alpha;
+    }
+
+    public double getRenderY(double alpha) {
+        return prevY + (y - prevY) * alpha;
+    }
+
     // Getters for camera position
     public int getX() {
         return (int) x;
@@ -38,6 +72,33 @@ public class Camera {
         return (int) y;
     }
 
+    // Size of the visible area in world units
+    public int getViewWidth() {
+        return (int) Math.ceil(viewportWidth / scaleFactor);
+    }
+
+    public int getViewHeight() {
+        return (int) Math.ceil(viewportHeight / scaleFactor);
+    }
+
+    // Visible area in world space, grown by VIEW_MARGIN on every side
+    public Rectangle getViewBounds() {
+        return new Rectangle(getX() - VIEW_MARGIN, getY() - VIEW_MARGIN,
+                getViewWidth() + 2 * VIEW_MARGIN, getViewHeight() + 2 * VIEW_MARGIN);
+    }
+
+    // Check if a world-space box overlaps the view bounds, without allocating
+    public boolean isVisible(int worldX, int worldY, int width, int height) {
+        int left = getX() - VIEW_MARGIN;
+        int top = getY() - VIEW_MARGIN;
+        return worldX + width > left && worldX < left + getViewWidth() + 2 * VIEW_MARGIN
+                && worldY + height > top && worldY < top + getViewHeight() + 2 * VIEW_MARGIN;
+    }
+
+    public boolean isVisible(Rectangle bounds) {
+        return isVisible(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
     // Set scale factor (zoom level)
     public void setScaleFactor(double scaleFactor) {
         this.scaleFactor = scaleFactor;
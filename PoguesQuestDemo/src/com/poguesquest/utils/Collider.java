@@ -1,5 +1,7 @@
 package com.poguesquest.utils;
 
+import com.poguesquest.world.TileMap;
+
 import java.awt.Rectangle;
 
 public class Collider {
@@ -26,24 +28,12 @@ public class Collider {
         return hitbox.intersects(rect);
     }
 
-    public boolean isColliding(int[][] map, int tileSize) {
-        int startX = Math.max(0, hitbox.x / tileSize);
-        int startY = Math.max(0, hitbox.y / tileSize);
-        int endX = Math.min(map[0].length - 1, (hitbox.x + hitbox.width) / tileSize);
-        int endY = Math.min(map.length - 1, (hitbox.y + hitbox.height) / tileSize);
-
-        for (int y = startY; y <= endY; y++) {
-            for (int x = startX; x <= endX; x++) {
-                if (isWall(map[y][x])) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    // Helper method to check if a tile is a wall
-    private boolean isWall(int tile) {
-        return tile >= 0 && tile <= 15 && tile != 1; // Assuming wall tiles range from 0 to 15, excluding 1 which is floor
+    // Anything outside the map counts as wall
+    public boolean isColliding(TileMap map, int tileSize) {
+        int startX = Math.floorDiv(hitbox.x, tileSize);
+        int startY = Math.floorDiv(hitbox.y, tileSize);
+        int endX = Math.floorDiv(hitbox.x + hitbox.width, tileSize);
+        int endY = Math.floorDiv(hitbox.y + hitbox.height, tileSize);
+        return !map.isAreaWalkable(startX, startY, endX, endY);
     }
 }
\ No newline at end of file
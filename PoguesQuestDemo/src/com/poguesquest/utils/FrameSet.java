@@ -0,0 +1,64 @@
+package com.poguesquest.utils;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Animation frames cut from a sprite sheet together with their mirrored copies,
+// so facing left costs the same as facing right at render time
+public class FrameSet {
+    private static final int FRAME_COUNT = 8;
+    private static final Map<BufferedImage, FrameSet> cache = new WeakHashMap<>();
+
+    private final BufferedImage[] rightFrames;
+    private final BufferedImage[] leftFrames;
+
+    private FrameSet(BufferedImage[] rightFrames, BufferedImage[] leftFrames) {
+        this.rightFrames = rightFrames;
+        this.leftFrames = leftFrames;
+    }
+
+    // Frame sets are shared by every entity using the same sheet, e.g. all guardians
+    public static synchronized FrameSet of(BufferedImage sheet) {
+        FrameSet frameSet = cache.get(sheet);
+        if (frameSet == null) {
+            frameSet = build(sheet);
+            cache.put(sheet, frameSet);
+        }
+        return frameSet;
+    }
+
+    private static FrameSet build(BufferedImage sheet) {
+        SpriteSheet spriteSheet = new SpriteSheet(sheet);
+        BufferedImage[] right = new BufferedImage[FRAME_COUNT];
+        BufferedImage[] left = new BufferedImage[FRAME_COUNT];
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            right[i] = spriteSheet.getPlayerFrame(i);
+            left[i] = flipHorizontally(right[i]);
+        }
+        return new FrameSet(right, left);
+    }
+
+    // Flip an image horizontally, keeping the 3 pixel offset the sprites were drawn with
+    private static BufferedImage flipHorizontally(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        BufferedImage flipped = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = flipped.createGraphics();
+
+        g2.drawImage(image, width + 3, 0, -width, height, null);
+        g2.dispose();
+
+        return flipped;
+    }
+
+    public BufferedImage getFrame(int index, boolean facingRight) {
+        return facingRight ? rightFrames[index] : leftFrames[index];
+    }
+
+    public int size() {
+        return FRAME_COUNT;
+    }
+}
\ No newline at end of file
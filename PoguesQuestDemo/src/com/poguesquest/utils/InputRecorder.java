@@ -0,0 +1,65 @@
+package com.poguesquest.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Passes input through from another source while writing every tick to a compact
+// binary log. The header stores what is needed to rebuild the same world:
+//   int magic, byte version, long seed, int mapWidth, int mapHeight, int minEnemies
+// followed by one record per tick: a flags byte, plus the cursor as two shorts
+// only when it moved since the previous tick.
+public class InputRecorder implements InputSource, Closeable {
+    static final int MAGIC = 0x50514952; // "PQIR"
+    static final byte VERSION = 1;
+    static final int UP = 1, DOWN = 2, LEFT = 4, RIGHT = 8, SHOOTING = 16, CURSOR_MOVED = 32;
+
+    private final InputSource source;
+    private final DataOutputStream out;
+    private int lastCursorX, lastCursorY;
+    private long ticks;
+
+    public InputRecorder(String path, long seed, int mapWidth, int mapHeight, int minEnemies, InputSource source) throws IOException {
+        this.source = source;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(seed);
+        out.writeInt(mapWidth);
+        out.writeInt(mapHeight);
+        out.writeInt(minEnemies);
+    }
+
+    @Override
+    public synchronized void poll(long tick, InputState state) {
+        source.poll(tick, state);
+
+        int flags = (state.up ? UP : 0) | (state.down ? DOWN : 0) | (state.left ? LEFT : 0)
+                | (state.right ? RIGHT : 0) | (state.shooting ? SHOOTING : 0);
+        boolean cursorMoved = state.cursor.x != lastCursorX || state.cursor.y != lastCursorY;
+        try {
+            out.writeByte(flags | (cursorMoved ? CURSOR_MOVED : 0));
+            if (cursorMoved) {
+                out.writeShort(state.cursor.x);
+                out.writeShort(state.cursor.y);
+                lastCursorX = state.cursor.x;
+                lastCursorY = state.cursor.y;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ticks++;
+    }
+
+    public synchronized long getTicks() {
+        return ticks;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.poguesquest.utils;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Plays back an input log written by InputRecorder, tick for tick.
+// Once the log runs out every further tick gets empty input.
+public class InputReplay implements InputSource, Closeable {
+    private final DataInputStream in;
+    private final long seed;
+    private final int mapWidth;
+    private final int mapHeight;
+    private final int minEnemies;
+    private int cursorX, cursorY;
+    private boolean finished;
+
+    public InputReplay(String path) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+        if (in.readInt() != InputRecorder.MAGIC) {
+            in.close();
+            throw new IOException("Not an input recording: " + path);
+        }
+        byte version = in.readByte();
+        if (version != InputRecorder.VERSION) {
+            in.close();
+            throw new IOException("Unsupported input recording version " + version);
+        }
+        this.seed = in.readLong();
+        this.mapWidth = in.readInt();
+        this.mapHeight = in.readInt();
+        this.minEnemies = in.readInt();
+    }
+
+    @Override
+    public void poll(long tick, InputState state) {
+        if (finished) {
+            state.set(false, false, false, false, false, cursorX, cursorY);
+            return;
+        }
+
+        try {
+            int flags = in.readUnsignedByte();
+            if ((flags & InputRecorder.CURSOR_MOVED) != 0) {
+                cursorX = in.readShort();
+                cursorY = in.readShort();
+            }
+            state.set((flags & InputRecorder.UP) != 0, (flags & InputRecorder.DOWN) != 0,
+                    (flags & InputRecorder.LEFT) != 0, (flags & InputRecorder.RIGHT) != 0,
+                    (flags & InputRecorder.SHOOTING) != 0, cursorX, cursorY);
+        } catch (EOFException e) {
+            finished = true;
+            state.set(false, false, false, false, false, cursorX, cursorY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // True once every recorded tick has been played
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getMapWidth() {
+        return mapWidth;
+    }
+
+    public int getMapHeight() {
+        return mapHeight;
+    }
+
+    public int getMinEnemies() {
+        return minEnemies;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
\ No newline at end of file
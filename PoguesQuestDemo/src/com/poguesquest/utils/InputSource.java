@@ -0,0 +1,7 @@
+package com.poguesquest.utils;
+
+// Supplies the input for each simulation tick, from devices, a script or a recording
+public interface InputSource {
+    // Fill in the input for the given tick
+    void poll(long tick, InputState state);
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.poguesquest.utils;
+
+import java.awt.Point;
+
+// Player input for a single tick. The cursor is in screen coordinates, like MouseHandler reports it.
+public class InputState {
+    public boolean up, down, left, right;
+    public boolean shooting;
+    public final Point cursor = new Point(0, 0);
+
+    public void set(boolean up, boolean down, boolean left, boolean right, boolean shooting, int cursorX, int cursorY) {
+        this.up = up;
+        this.down = down;
+        this.left = left;
+        this.right = right;
+        this.shooting = shooting;
+        this.cursor.setLocation(cursorX, cursorY);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.poguesquest.utils;
+
+import java.awt.Point;
+
+// Input read from the keyboard and mouse handlers attached to the window
+public class LiveInput implements InputSource {
+    private final KeyHandler keyHandler;
+    private final MouseHandler mouseHandler;
+
+    public LiveInput(KeyHandler keyHandler, MouseHandler mouseHandler) {
+        this.keyHandler = keyHandler;
+        this.mouseHandler = mouseHandler;
+    }
+
+    @Override
+    public void poll(long tick, InputState state) {
+        Point cursor = mouseHandler.getCursorPosition();
+        state.set(keyHandler.isUp(), keyHandler.isDown(), keyHandler.isLeft(), keyHandler.isRight(),
+                mouseHandler.isShooting(), cursor.x, cursor.y);
+    }
+}
\ No newline at end of file
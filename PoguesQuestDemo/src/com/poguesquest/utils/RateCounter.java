@@ -0,0 +1,23 @@
+package com.poguesquest.utils;
+
+// Counts events (ticks, frames) and reports how many happened over the last second
+public class RateCounter {
+    private int count;
+    private long windowStart = System.nanoTime();
+    private volatile int rate;
+
+    public void increment() {
+        count++;
+        long now = System.nanoTime();
+        if (now - windowStart >= 1_000_000_000L) {
+            rate = (int) Math.round(count * 1_000_000_000.0 / (now - windowStart));
+            count = 0;
+            windowStart = now;
+        }
+    }
+
+    // Events per second over the last full second
+    public int getRate() {
+        return rate;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.poguesquest.utils;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+// Everything the renderer needs from one simulation tick, copied out of the world so the
+// render thread never reads live entities. Sprites are parallel arrays in draw order,
+// and the arrays are kept and refilled every tick instead of being reallocated.
+public class RenderSnapshot {
+    public static final byte PLAYER = 0;
+    public static final byte GUARDIAN = 1;
+    public static final byte PROJECTILE = 2;
+    public static final byte EFFECT = 3; // Gun, damage flash and other overlays
+
+    private final Camera view; // Copy of the camera at the end of the tick
+    private long tick;
+    long sequence; // Publish order, set by SnapshotExchange
+
+    private BufferedImage[] images;
+    private int[] x, y;
+    private int[] prevX, prevY;
+    private byte[] kind;
+    private int count;
+
+    private int candidatePairs;
+    private int projectileCount;
+    private int projectileHits;
+    private int projectileMisses;
+    private int flowFieldRebuilds;
+    private long flowFieldRebuildNanos;
+    private int chunksLoaded;
+    private int chunksStored;
+    private int chunkStalls;
+
+    public RenderSnapshot(Camera camera, int initialCapacity) {
+        this.view = new Camera(camera);
+        int capacity = Math.max(16, initialCapacity);
+        images = new BufferedImage[capacity];
+        x = new int[capacity];
+        y = new int[capacity];
+        prevX = new int[capacity];
+        prevY = new int[capacity];
+        kind = new byte[capacity];
+    }
+
+    // Start refilling this buffer for the given tick
+    public void begin(long tick, Camera camera) {
+        this.tick = tick;
+        view.copyFrom(camera);
+        Arrays.fill(images, 0, count, null); // Don't keep images of despawned sprites alive
+        count = 0;
+    }
+
+    // Queue a sprite at its current position and where it was at the start of the tick
+    public void addSprite(byte spriteKind, BufferedImage image, int spriteX, int spriteY, int previousX, int previousY) {
+        if (count == images.length) {
+            grow();
+        }
+        images[count] = image;
+        x[count] = spriteX;
+        y[count] = spriteY;
+        prevX[count] = previousX;
+        prevY[count] = previousY;
+        kind[count] = spriteKind;
+        count++;
+    }
+
+    public void setCandidatePairs(int candidatePairs) {
+        this.candidatePairs = candidatePairs;
+    }
+
+    public void setProjectileStats(int count, int hits, int misses) {
+        this.projectileCount = count;
+        this.projectileHits = hits;
+        this.projectileMisses = misses;
+    }
+
+    public void setFlowFieldStats(int rebuilds, long lastRebuildNanos) {
+        this.flowFieldRebuilds = rebuilds;
+        this.flowFieldRebuildNanos = lastRebuildNanos;
+    }
+
+    public void setChunkStats(int loaded, int stored, int stalls) {
+        this.chunksLoaded = loaded;
+        this.chunksStored = stored;
+        this.chunkStalls = stalls;
+    }
+
+    // Draw the sprites interpolated between the two ticks, skipping the ones outside the view
+    public void render(Graphics g, double alpha, RenderStats stats) {
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = images[i];
+            if (image == null) {
+                continue;
+            }
+            int drawX = (int) Math.round(prevX[i] + (x[i] - prevX[i]) * alpha);
+            int drawY = (int) Math.round(prevY[i] + (y[i] - prevY[i]) * alpha);
+            boolean visible = view.isVisible(drawX, drawY, image.getWidth(), image.getHeight());
+            if (visible) {
+                g.drawImage(image, drawX, drawY, null);
+            }
+            if (kind[i] == GUARDIAN) {
+                stats.countEntity(visible);
+            } else if (kind[i] == PROJECTILE) {
+                stats.countBullet(visible);
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = images.length * 2;
+        images = Arrays.copyOf(images, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+    }
+
+    public Camera getView() {
+        return view;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getSpriteCount() {
+        return count;
+    }
+
+    public int getCandidatePairs() {
+        return candidatePairs;
+    }
+
+    public int getProjectileCount() {
+        return projectileCount;
+    }
+
+    public int getProjectileHits() {
+        return projectileHits;
+    }
+
+    public int getProjectileMisses() {
+        return projectileMisses;
+    }
+
+    public int getFlowFieldRebuilds() {
+        return flowFieldRebuilds;
+    }
+
+    public long getFlowFieldRebuildNanos() {
+        return flowFieldRebuildNanos;
+    }
+
+    public int getChunksLoaded() {
+        return chunksLoaded;
+    }
+
+    public int getChunksStored() {
+        return chunksStored;
+    }
+
+    public int getChunkStalls() {
+        return chunkStalls;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.poguesquest.utils;
+
+// Per-frame counters of what the render pass drew and what it culled
+public class RenderStats {
+    private int chunksDrawn, chunksCulled;
+    private int entitiesDrawn, entitiesCulled;
+    private int bulletsDrawn, bulletsCulled;
+
+    // Totals of the last finished frame, safe to read while the next frame is counted
+    private volatile String lastFrame = "";
+    private int lastDrawn, lastCulled;
+
+    public void beginFrame() {
+        chunksDrawn = chunksCulled = 0;
+        entitiesDrawn = entitiesCulled = 0;
+        bulletsDrawn = bulletsCulled = 0;
+    }
+
+    public void endFrame() {
+        lastDrawn = chunksDrawn + entitiesDrawn + bulletsDrawn;
+        lastCulled = chunksCulled + entitiesCulled + bulletsCulled;
+        lastFrame = "chunks " + chunksDrawn + "/" + (chunksDrawn + chunksCulled)
+                + "  entities " + entitiesDrawn + "/" + (entitiesDrawn + entitiesCulled)
+                + "  bullets " + bulletsDrawn + "/" + (bulletsDrawn + bulletsCulled);
+    }
+
+    public void countChunks(int drawn, int culled) {
+        chunksDrawn += drawn;
+        chunksCulled += culled;
+    }
+
+    public void countEntity(boolean drawn) {
+        if (drawn) entitiesDrawn++; else entitiesCulled++;
+    }
+
+    public void countBullet(boolean drawn) {
+        if (drawn) bulletsDrawn++; else bulletsCulled++;
+    }
+
+    public int getChunksDrawn() { return chunksDrawn; }
+    public int getChunksCulled() { return chunksCulled; }
+    public int getEntitiesDrawn() { return entitiesDrawn; }
+    public int getEntitiesCulled() { return entitiesCulled; }
+    public int getBulletsDrawn() { return bulletsDrawn; }
+    public int getBulletsCulled() { return bulletsCulled; }
+    public int getLastDrawn() { return lastDrawn; }
+    public int getLastCulled() { return lastCulled; }
+
+    // Drawn/total summary of the last finished frame
+    @Override
+    public String toString() {
+        return lastFrame;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.poguesquest.utils;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Pre-rotated copies of a sprite, quantized to a fixed number of angle steps.
+// Every step is rendered when the cache is built, so lookups never write and can come
+// from any thread. The cache holds only the rotated copies, never the sprite itself,
+// so the weak key lets a sprite nobody uses anymore be collected with its rotations.
+public class RotationCache {
+    public static final int ANGLE_STEPS = 256;
+    private static final Map<BufferedImage, RotationCache> caches = new WeakHashMap<>();
+
+    private final BufferedImage[] rotated;
+    private final BufferedImage[] mirrored;
+
+    private RotationCache(BufferedImage sprite) {
+        this.rotated = new BufferedImage[ANGLE_STEPS];
+        this.mirrored = new BufferedImage[ANGLE_STEPS];
+        for (int step = 0; step < ANGLE_STEPS; step++) {
+            rotated[step] = RotationUtils.rotateImage(sprite, step * 2 * Math.PI / ANGLE_STEPS);
+            mirrored[step] = flipHorizontally(rotated[step]);
+        }
+    }
+
+    // One cache per sprite, shared by every weapon drawing that sprite
+    public static synchronized RotationCache of(BufferedImage sprite) {
+        RotationCache cache = caches.get(sprite);
+        if (cache == null) {
+            cache = new RotationCache(sprite);
+            caches.put(sprite, cache);
+        }
+        return cache;
+    }
+
+    // Map an angle in radians to its nearest step
+    public static int quantize(double angle) {
+        int step = (int) Math.round(angle * ANGLE_STEPS / (2 * Math.PI));
+        return Math.floorMod(step, ANGLE_STEPS);
+    }
+
+    // Sprite rotated around its center, optionally mirrored horizontally afterwards
+    public BufferedImage get(double angle, boolean mirror) {
+        int step = quantize(angle);
+        return mirror ? mirrored[step] : rotated[step];
+    }
+
+    private static BufferedImage flipHorizontally(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        BufferedImage flipped = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = flipped.createGraphics();
+        g2.drawImage(image, width, 0, -width, height, null);
+        g2.dispose();
+
+        return flipped;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.poguesquest.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Reads a save written by SaveWriter: applies every record in order and returns the state
+// of the last one. A record cut short by a crash mid-write is ignored, so the game loads
+// from the save before it. Chunks come back as TileMap runs.
+public class SaveReader {
+    public static SaveSnapshot read(String path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            if (in.readInt() != SaveWriter.MAGIC) {
+                throw new IOException("Not a save file: " + path);
+            }
+            byte version = in.readByte();
+            if (version != SaveWriter.VERSION) {
+                throw new IOException("Unsupported save file version " + version);
+            }
+            long seed = in.readLong();
+            int worldWidth = in.readInt();
+            int worldHeight = in.readInt();
+
+            long tick = -1;
+            int[] player = new int[SaveSnapshot.PLAYER_FIELDS];
+            int[] projectiles = new int[0];
+            TreeMap<Integer, int[]> guardians = new TreeMap<>(); // By id, which is list order
+            Map<Long, byte[]> chunks = new LinkedHashMap<>();
+            while (true) {
+                byte[] record;
+                try {
+                    record = new byte[in.readInt()];
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                DataInputStream data = new DataInputStream(new ByteArrayInputStream(record));
+                tick = readVarLong(data);
+                int flags = data.readUnsignedByte();
+                if ((flags & SaveWriter.PLAYER_CHANGED) != 0) {
+                    for (int field = 0; field < SaveSnapshot.PLAYER_FIELDS; field++) {
+                        player[field] = (int) readVarLong(data);
+                    }
+                }
+                if ((flags & SaveWriter.PROJECTILES_CHANGED) != 0) {
+                    projectiles = new int[(int) readVarLong(data) * SaveSnapshot.PROJECTILE_FIELDS];
+                    for (int i = 0; i < projectiles.length; i++) {
+                        projectiles[i] = (int) readVarLong(data);
+                    }
+                }
+                int changed = (int) readVarLong(data);
+                for (int i = 0; i < changed; i++) {
+                    int[] guardian = new int[SaveSnapshot.GUARDIAN_FIELDS];
+                    for (int field = 0; field < guardian.length; field++) {
+                        guardian[field] = (int) readVarLong(data);
+                    }
+                    guardians.put(guardian[SaveSnapshot.GUARDIAN_ID], guardian);
+                }
+                int removed = (int) readVarLong(data);
+                for (int i = 0; i < removed; i++) {
+                    guardians.remove((int) readVarLong(data));
+                }
+                int chunkCount = (int) readVarLong(data);
+                for (int i = 0; i < chunkCount; i++) {
+                    int chunkX = (int) readVarLong(data);
+                    int chunkY = (int) readVarLong(data);
+                    byte[] runs = new byte[(int) readVarLong(data)];
+                    data.readFully(runs);
+                    chunks.put(((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL), runs);
+                }
+            }
+            if (tick < 0) {
+                throw new IOException("Save file holds no saves: " + path);
+            }
+
+            SaveSnapshot snapshot = new SaveSnapshot();
+            snapshot.begin(tick, seed, worldWidth, worldHeight);
+            snapshot.setPlayer(player[SaveSnapshot.PLAYER_X], player[SaveSnapshot.PLAYER_Y], player[SaveSnapshot.PLAYER_HEALTH],
+                    player[SaveSnapshot.PLAYER_AMMO], player[SaveSnapshot.PLAYER_FACING_RIGHT] != 0,
+                    player[SaveSnapshot.PLAYER_DAMAGE_TICKS]);
+            if (player[SaveSnapshot.PLAYER_ARMED] != 0) {
+                snapshot.setGun(player[SaveSnapshot.GUN_AMMO], player[SaveSnapshot.GUN_COOLDOWN]);
+            }
+            // Records are in field order
+            int[] p = projectiles;
+            for (int i = 0; i < p.length; i += SaveSnapshot.PROJECTILE_FIELDS) {
+                snapshot.addProjectile(p[i], p[i + 1], p[i + 2], p[i + 3], p[i + 4], p[i + 5], p[i + 6], p[i + 7]);
+            }
+            for (int[] g : guardians.values()) {
+                snapshot.addGuardian(g[0], g[1], g[2], g[3], g[4], g[5], g[6], g[7], g[8], g[9], g[10] != 0);
+            }
+            for (Map.Entry<Long, byte[]> chunk : chunks.entrySet()) {
+                snapshot.addChunk(chunk.getKey(), chunk.getValue());
+            }
+            return snapshot;
+        }
+    }
+
+    static long readVarLong(DataInputStream data) throws IOException {
+        long bits = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = data.readUnsignedByte();
+            bits |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return (bits >>> 1) ^ -(bits & 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package com.poguesquest.utils;
+
+import java.util.Arrays;
+
+// The whole game state at one tick boundary, copied out of the world so it can be written
+// to disk on another thread while the game goes on. Entities are stored as records of ints
+// in flat arrays, indexed with the field constants below, and the arrays are refilled by
+// every capture instead of being reallocated. Changed map chunks are held by reference:
+// the streamer never changes a chunk it has handed out, so nothing needs copying.
+public class SaveSnapshot {
+    // Player record, followed by the gun's fields when it is armed
+    public static final int PLAYER_X = 0, PLAYER_Y = 1, PLAYER_HEALTH = 2, PLAYER_AMMO = 3, PLAYER_FACING_RIGHT = 4,
+            PLAYER_DAMAGE_TICKS = 5, PLAYER_ARMED = 6, GUN_AMMO = 7, GUN_COOLDOWN = 8;
+    public static final int PLAYER_FIELDS = 9;
+
+    public static final int PROJECTILE_X = 0, PROJECTILE_Y = 1, PROJECTILE_VELOCITY_X = 2, PROJECTILE_VELOCITY_Y = 3,
+            PROJECTILE_LIFE = 4, PROJECTILE_STATE = 5, PROJECTILE_EFFECT_FRAME = 6, PROJECTILE_EFFECT_TIMER = 7;
+    public static final int PROJECTILE_FIELDS = 8;
+
+    // Guardians are kept in list order, which is ascending id order
+    public static final int GUARDIAN_ID = 0, GUARDIAN_X = 1, GUARDIAN_Y = 2, GUARDIAN_HEALTH = 3, GUARDIAN_STATE = 4,
+            GUARDIAN_WANDER_TIME = 5, GUARDIAN_WANDER_DIRECTION = 6, GUARDIAN_IDLE_TICKS = 7,
+            GUARDIAN_ATTACK_COOLDOWN = 8, GUARDIAN_LINE_OF_SIGHT = 9, GUARDIAN_FACING_RIGHT = 10;
+    public static final int GUARDIAN_FIELDS = 11;
+
+    private long tick;
+    private long seed;
+    private int worldWidth;
+    private int worldHeight;
+    private final int[] player = new int[PLAYER_FIELDS];
+    private int[] projectiles = new int[16 * PROJECTILE_FIELDS];
+    private int projectileCount;
+    private int[] guardians = new int[64 * GUARDIAN_FIELDS];
+    private int guardianCount;
+    private long[] chunkKeys = new long[16];
+    private Object[] chunks = new Object[16]; // A TileMap still loaded, or the runs of an evicted or loaded one
+    private int chunkCount;
+
+    // Start refilling this snapshot for the given tick
+    public void begin(long tick, long seed, int worldWidth, int worldHeight) {
+        this.tick = tick;
+        this.seed = seed;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        Arrays.fill(player, 0);
+        projectileCount = 0;
+        guardianCount = 0;
+        Arrays.fill(chunks, 0, chunkCount, null); // Don't keep evicted chunks alive
+        chunkCount = 0;
+    }
+
+    public void setPlayer(int x, int y, int health, int ammo, boolean facingRight, int damageTicks) {
+        player[PLAYER_X] = x;
+        player[PLAYER_Y] = y;
+        player[PLAYER_HEALTH] = health;
+        player[PLAYER_AMMO] = ammo;
+        player[PLAYER_FACING_RIGHT] = facingRight ? 1 : 0;
+        player[PLAYER_DAMAGE_TICKS] = damageTicks;
+    }
+
+    public void setGun(int ammo, int cooldown) {
+        player[PLAYER_ARMED] = 1;
+        player[GUN_AMMO] = ammo;
+        player[GUN_COOLDOWN] = cooldown;
+    }
+
+    public void addProjectile(int x, int y, int velocityX, int velocityY, int life, int state, int effectFrame, int effectTimer) {
+        int i = projectileCount++ * PROJECTILE_FIELDS;
+        if (i == projectiles.length) {
+            projectiles = Arrays.copyOf(projectiles, projectiles.length * 2);
+        }
+        projectiles[i + PROJECTILE_X] = x;
+        projectiles[i + PROJECTILE_Y] = y;
+        projectiles[i + PROJECTILE_VELOCITY_X] = velocityX;
+        projectiles[i + PROJECTILE_VELOCITY_Y] = velocityY;
+        projectiles[i + PROJECTILE_LIFE] = life;
+        projectiles[i + PROJECTILE_STATE] = state;
+        projectiles[i + PROJECTILE_EFFECT_FRAME] = effectFrame;
+        projectiles[i + PROJECTILE_EFFECT_TIMER] = effectTimer;
+    }
+
+    public void addGuardian(int id, int x, int y, int health, int state, int wanderTime, int wanderDirection,
+            int idleTicks, int attackCooldown, int lineOfSight, boolean facingRight) {
+        int i = guardianCount++ * GUARDIAN_FIELDS;
+        if (i == guardians.length) {
+            guardians = Arrays.copyOf(guardians, guardians.length * 2);
+        }
+        guardians[i + GUARDIAN_ID] = id;
+        guardians[i + GUARDIAN_X] = x;
+        guardians[i + GUARDIAN_Y] = y;
+        guardians[i + GUARDIAN_HEALTH] = health;
+        guardians[i + GUARDIAN_STATE] = state;
+        guardians[i + GUARDIAN_WANDER_TIME] = wanderTime;
+        guardians[i + GUARDIAN_WANDER_DIRECTION] = wanderDirection;
+        guardians[i + GUARDIAN_IDLE_TICKS] = idleTicks;
+        guardians[i + GUARDIAN_ATTACK_COOLDOWN] = attackCooldown;
+        guardians[i + GUARDIAN_LINE_OF_SIGHT] = lineOfSight;
+        guardians[i + GUARDIAN_FACING_RIGHT] = facingRight ? 1 : 0;
+    }
+
+    // A chunk that differs from what the seed generates, as a TileMap or as encoded runs
+    public void addChunk(long key, Object chunk) {
+        if (chunkCount == chunkKeys.length) {
+            chunkKeys = Arrays.copyOf(chunkKeys, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        chunkKeys[chunkCount] = key;
+        chunks[chunkCount] = chunk;
+        chunkCount++;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWorldWidth() {
+        return worldWidth;
+    }
+
+    public int getWorldHeight() {
+        return worldHeight;
+    }
+
+    public int getPlayer(int field) {
+        return player[field];
+    }
+
+    public int getProjectileCount() {
+        return projectileCount;
+    }
+
+    public int getProjectile(int index, int field) {
+        return projectiles[index * PROJECTILE_FIELDS + field];
+    }
+
+    public int getGuardianCount() {
+        return guardianCount;
+    }
+
+    public int getGuardian(int index, int field) {
+        return guardians[index * GUARDIAN_FIELDS + field];
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public long getChunkKey(int index) {
+        return chunkKeys[index];
+    }
+
+    public Object getChunk(int index) {
+        return chunks[index];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,291 @@
+package com.poguesquest.utils;
+
+import com.poguesquest.world.TileMap;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Saves the game without stalling it. The caller's tick thread only copies the world into a
+// SaveSnapshot; encoding and disk writes happen on a background thread. The file is a log:
+//   header: int magic, byte version, long seed, int worldWidth, int worldHeight
+//   then one record per save: int length, then the payload
+// The first record holds everything, and each later one only what changed since the save
+// before it: the player and the projectiles if they changed, changed or new guardians, the
+// ids of guardians that died, and changed map chunks as TileMap runs. Numbers in records are
+// zigzag varints, so small values take a byte. A loader applies the records in order.
+public class SaveWriter implements Closeable {
+    static final int MAGIC = 0x50515356; // "PQSV"
+    static final byte VERSION = 1;
+    static final int PLAYER_CHANGED = 1, PROJECTILES_CHANGED = 2;
+
+    private final DataOutputStream out; // Only touched by the writer thread after the header
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "save-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private SaveSnapshot back = new SaveSnapshot(); // Filled by the next capture
+    private SaveSnapshot previous = new SaveSnapshot(); // Last written state, empty before the first save
+    private SaveSnapshot writing; // Being written, with previous, while inFlight runs
+    private Future<Integer> inFlight;
+    private boolean closed; // Set by close, e.g. from a shutdown hook while the game still ticks
+    private final Map<Long, Object> writtenChunks = new HashMap<>(); // Writer thread only
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(); // Writer thread only
+
+    private int saves; // Captured and queued
+    private int skipped; // Saves asked for while the previous one was still being written
+    private long bytes;
+    private long lastCaptureNanos;
+    private long maxCaptureNanos;
+
+    public SaveWriter(String path, long seed, int worldWidth, int worldHeight) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(seed);
+        out.writeInt(worldWidth);
+        out.writeInt(worldHeight);
+        out.flush();
+        bytes = out.size();
+    }
+
+    // Call between ticks. Captures the world into a snapshot and queues it for writing, or
+    // returns false without capturing if the previous save is still being written or the
+    // writer has been closed.
+    public synchronized boolean save(Consumer<SaveSnapshot> capture) {
+        if (closed) {
+            return false;
+        }
+        if (inFlight != null) {
+            if (!inFlight.isDone()) {
+                skipped++;
+                return false;
+            }
+            finishWrite();
+        }
+
+        long start = System.nanoTime();
+        capture.accept(back);
+        lastCaptureNanos = System.nanoTime() - start;
+        maxCaptureNanos = Math.max(maxCaptureNanos, lastCaptureNanos);
+
+        writing = back;
+        back = null;
+        saves++;
+        SaveSnapshot current = writing;
+        SaveSnapshot before = previous;
+        inFlight = executor.submit(() -> write(current, before));
+        return true;
+    }
+
+    // Collect a finished write; the written snapshot becomes the base of the next delta
+    private void finishWrite() {
+        try {
+            bytes += inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a save", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw new UncheckedIOException(io);
+            }
+            throw new IllegalStateException("Save failed", e.getCause());
+        }
+        back = previous;
+        previous = writing;
+        writing = null;
+        inFlight = null;
+    }
+
+    // Encode one record on the writer thread and append it. Returns the bytes written.
+    private int write(SaveSnapshot current, SaveSnapshot before) throws IOException {
+        record.reset();
+        DataOutputStream data = new DataOutputStream(record);
+        writeVarLong(data, current.getTick());
+
+        // Before the first save, previous is empty, so everything counts as changed
+        boolean playerChanged = !samePlayer(current, before);
+        boolean projectilesChanged = !sameProjectiles(current, before);
+        data.writeByte((playerChanged ? PLAYER_CHANGED : 0) | (projectilesChanged ? PROJECTILES_CHANGED : 0));
+        if (playerChanged) {
+            for (int field = 0; field < SaveSnapshot.PLAYER_FIELDS; field++) {
+                writeVarLong(data, current.getPlayer(field));
+            }
+        }
+        if (projectilesChanged) {
+            writeVarLong(data, current.getProjectileCount());
+            for (int i = 0; i < current.getProjectileCount(); i++) {
+                for (int field = 0; field < SaveSnapshot.PROJECTILE_FIELDS; field++) {
+                    writeVarLong(data, current.getProjectile(i, field));
+                }
+            }
+        }
+        writeGuardians(data, current, before);
+        writeChunks(data, current);
+
+        out.writeInt(record.size());
+        record.writeTo(out);
+        out.flush();
+        return 4 + record.size();
+    }
+
+    // Merge the two id-ordered guardian lists: new or changed ones are written, missing ones removed
+    private static void writeGuardians(DataOutputStream data, SaveSnapshot current, SaveSnapshot before) throws IOException {
+        int changed = 0;
+        int removed = 0;
+        int[] removedIds = new int[before.getGuardianCount()];
+        int[] changedIndices = new int[current.getGuardianCount()];
+        int j = 0;
+        for (int i = 0; i < current.getGuardianCount(); i++) {
+            int id = current.getGuardian(i, SaveSnapshot.GUARDIAN_ID);
+            while (j < before.getGuardianCount() && before.getGuardian(j, SaveSnapshot.GUARDIAN_ID) < id) {
+                removedIds[removed++] = before.getGuardian(j++, SaveSnapshot.GUARDIAN_ID);
+            }
+            if (j < before.getGuardianCount() && before.getGuardian(j, SaveSnapshot.GUARDIAN_ID) == id) {
+                if (!sameGuardian(current, i, before, j)) {
+                    changedIndices[changed++] = i;
+                }
+                j++;
+            } else {
+                changedIndices[changed++] = i;
+            }
+        }
+        while (j < before.getGuardianCount()) {
+            removedIds[removed++] = before.getGuardian(j++, SaveSnapshot.GUARDIAN_ID);
+        }
+
+        writeVarLong(data, changed);
+        for (int k = 0; k < changed; k++) {
+            for (int field = 0; field < SaveSnapshot.GUARDIAN_FIELDS; field++) {
+                writeVarLong(data, current.getGuardian(changedIndices[k], field));
+            }
+        }
+        writeVarLong(data, removed);
+        for (int k = 0; k < removed; k++) {
+            writeVarLong(data, removedIds[k]);
+        }
+    }
+
+    // Chunks are never changed in place, so a chunk is unchanged if it is the same object
+    private void writeChunks(DataOutputStream data, SaveSnapshot current) throws IOException {
+        int changed = 0;
+        for (int i = 0; i < current.getChunkCount(); i++) {
+            if (writtenChunks.get(current.getChunkKey(i)) != current.getChunk(i)) {
+                changed++;
+            }
+        }
+        writeVarLong(data, changed);
+        for (int i = 0; i < current.getChunkCount(); i++) {
+            long key = current.getChunkKey(i);
+            Object chunk = current.getChunk(i);
+            if (writtenChunks.get(key) == chunk) {
+                continue;
+            }
+            byte[] runs = chunk instanceof TileMap map ? map.encodeRuns() : (byte[]) chunk;
+            writeVarLong(data, (int) (key >> 32));
+            writeVarLong(data, (int) key);
+            writeVarLong(data, runs.length);
+            data.write(runs);
+            writtenChunks.put(key, chunk);
+        }
+    }
+
+    private static boolean samePlayer(SaveSnapshot current, SaveSnapshot before) {
+        for (int field = 0; field < SaveSnapshot.PLAYER_FIELDS; field++) {
+            if (current.getPlayer(field) != before.getPlayer(field)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameProjectiles(SaveSnapshot current, SaveSnapshot before) {
+        if (current.getProjectileCount() != before.getProjectileCount()) {
+            return false;
+        }
+        for (int i = 0; i < current.getProjectileCount(); i++) {
+            for (int field = 0; field < SaveSnapshot.PROJECTILE_FIELDS; field++) {
+                if (current.getProjectile(i, field) != before.getProjectile(i, field)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameGuardian(SaveSnapshot current, int i, SaveSnapshot before, int j) {
+        for (int field = 0; field < SaveSnapshot.GUARDIAN_FIELDS; field++) {
+            if (current.getGuardian(i, field) != before.getGuardian(j, field)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Zigzag, then seven bits per byte, low bits first
+    static void writeVarLong(DataOutputStream data, long value) throws IOException {
+        long bits = (value << 1) ^ (value >> 63);
+        while ((bits & ~0x7FL) != 0) {
+            data.writeByte((int) (bits & 0x7F) | 0x80);
+            bits >>>= 7;
+        }
+        data.writeByte((int) bits);
+    }
+
+    public int getSaves() {
+        return saves;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    // File size so far, counting only saves that have been collected
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getLastCaptureNanos() {
+        return lastCaptureNanos;
+    }
+
+    public long getMaxCaptureNanos() {
+        return maxCaptureNanos;
+    }
+
+    // Block until the queued save, if any, has reached the file
+    public synchronized void awaitWrite() {
+        if (inFlight != null) {
+            finishWrite();
+        }
+    }
+
+    // Wait for the last save to reach the file, then close it
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            awaitWrite();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            executor.shutdown();
+            out.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.poguesquest.utils;
+
+import java.util.SplittableRandom;
+
+// Deterministic stand-in for a player: walks in a random direction for a while,
+// sweeps the cursor around the screen centre and fires in bursts
+public class ScriptedInput implements InputSource {
+    private static final int HOLD_TICKS = 45; // Ticks before picking a new direction
+    private final SplittableRandom random;
+    private final int screenWidth;
+    private final int screenHeight;
+    private int direction;
+    private boolean shooting;
+
+    public ScriptedInput(long seed, int screenWidth, int screenHeight) {
+        this.random = new SplittableRandom(seed);
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+    }
+
+    @Override
+    public void poll(long tick, InputState state) {
+        if (tick % HOLD_TICKS == 0) {
+            direction = random.nextInt(9); // 8 directions or standing still
+            shooting = random.nextInt(3) > 0;
+        }
+
+        double aim = tick * 0.05;
+        int cursorX = (int) (screenWidth / 2 + Math.cos(aim) * screenHeight / 3);
+        int cursorY = (int) (screenHeight / 2 + Math.sin(aim) * screenHeight / 3);
+
+        state.set(direction == 0 || direction == 1 || direction == 7,
+                direction >= 3 && direction <= 5,
+                direction >= 5 && direction <= 7,
+                direction >= 1 && direction <= 3,
+                shooting, cursorX, cursorY);
+    }
+}
\ No newline at end of file
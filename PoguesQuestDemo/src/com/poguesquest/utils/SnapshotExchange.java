@@ -0,0 +1,54 @@
+package com.poguesquest.utils;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Triple buffer between the simulation thread and the thread that renders. The writer
+// fills its private back buffer and swaps it into the shared slot; the reader swaps its
+// front buffer for the shared one only when a newer tick has been published. Neither
+// side ever locks or waits, and the same three snapshots are reused for the whole game.
+// There must be exactly one writer and one reader at a time.
+public class SnapshotExchange {
+    private final AtomicReference<RenderSnapshot> shared;
+    private RenderSnapshot back;  // Owned by the writer
+    private RenderSnapshot front; // Owned by the reader
+    private long written;         // Writer side publish counter
+    private volatile long published;
+    private volatile long swaps;  // Buffers the reader actually picked up
+
+    public SnapshotExchange(Camera camera, int initialCapacity) {
+        back = new RenderSnapshot(camera, initialCapacity);
+        shared = new AtomicReference<>(new RenderSnapshot(camera, initialCapacity));
+        front = new RenderSnapshot(camera, initialCapacity);
+    }
+
+    // Buffer for the writer to fill, valid until the next publish
+    public RenderSnapshot getBackBuffer() {
+        return back;
+    }
+
+    // Hand the filled back buffer to the reader and take whichever buffer was shared
+    public void publish() {
+        back.sequence = ++written;
+        back = shared.getAndSet(back);
+        published = written;
+    }
+
+    // Newest published snapshot, or the one already held if nothing newer has arrived.
+    // Valid until the next call to acquire.
+    public RenderSnapshot acquire() {
+        if (published > front.sequence) {
+            front = shared.getAndSet(front);
+            swaps++;
+        }
+        return front;
+    }
+
+    public long getPublished() {
+        return published;
+    }
+
+    // Published snapshots the reader never saw, because it was slower than the writer
+    public long getSkipped() {
+        return published - swaps;
+    }
+}
\ No newline at end of file
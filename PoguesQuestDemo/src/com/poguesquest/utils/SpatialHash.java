@@ -0,0 +1,108 @@
+package com.poguesquest.utils;
+
+import java.util.Arrays;
+
+// Uniform grid of buckets keyed by cell, storing entity indices. Buckets are
+// singly linked lists inside flat int arrays, so rebuilding and querying never allocate.
+public class SpatialHash {
+    private final int cellSize;
+    private int[] head;      // First entry of each bucket, -1 when empty
+    private int[] next;      // Next entry in the same bucket, -1 at the end
+    private int[] ids;
+    private int[] cellXs;
+    private int[] cellYs;
+    private int count;
+
+    public SpatialHash(int cellSize, int expectedEntries) {
+        this.cellSize = cellSize;
+        int capacity = Math.max(16, expectedEntries);
+        this.head = new int[tableSizeFor(capacity)];
+        this.next = new int[capacity];
+        this.ids = new int[capacity];
+        this.cellXs = new int[capacity];
+        this.cellYs = new int[capacity];
+        Arrays.fill(head, -1);
+    }
+
+    public void clear() {
+        Arrays.fill(head, -1);
+        count = 0;
+    }
+
+    // Add an entity at a world position, id is whatever the caller indexes by
+    public void insert(int id, int x, int y) {
+        if (count == ids.length) {
+            grow();
+        }
+        int cellX = Math.floorDiv(x, cellSize);
+        int cellY = Math.floorDiv(y, cellSize);
+        int bucket = bucket(cellX, cellY);
+
+        ids[count] = id;
+        cellXs[count] = cellX;
+        cellYs[count] = cellY;
+        next[count] = head[bucket];
+        head[bucket] = count;
+        count++;
+    }
+
+    // Collect ids in every cell touched by the square of the given radius around (x, y).
+    // Returns how many were found, which can exceed out.length if the buffer was too small.
+    public int query(int x, int y, int radius, int[] out) {
+        int minCellX = Math.floorDiv(x - radius, cellSize);
+        int maxCellX = Math.floorDiv(x + radius, cellSize);
+        int minCellY = Math.floorDiv(y - radius, cellSize);
+        int maxCellY = Math.floorDiv(y + radius, cellSize);
+        int found = 0;
+
+        for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int entry = head[bucket(cellX, cellY)]; entry != -1; entry = next[entry]) {
+                    // Different cells can share a bucket, only keep entries really in this cell
+                    if (cellXs[entry] == cellX && cellYs[entry] == cellY) {
+                        if (found < out.length) {
+                            out[found] = ids[entry];
+                        }
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    private int bucket(int cellX, int cellY) {
+        int hash = cellX * 73856093 ^ cellY * 19349663;
+        return (hash ^ (hash >>> 16)) & (head.length - 1);
+    }
+
+    // Double the entry arrays and the table, then relink every entry into its new bucket
+    private void grow() {
+        int capacity = ids.length * 2;
+        next = Arrays.copyOf(next, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        cellXs = Arrays.copyOf(cellXs, capacity);
+        cellYs = Arrays.copyOf(cellYs, capacity);
+
+        head = new int[tableSizeFor(capacity)];
+        Arrays.fill(head, -1);
+        for (int entry = 0; entry < count; entry++) {
+            int bucket = bucket(cellXs[entry], cellYs[entry]);
+            next[entry] = head[bucket];
+            head[bucket] = entry;
+        }
+    }
+
+    // Power of two with roughly two buckets per entry
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(Math.max(1, capacity * 2 - 1)) << 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,220 @@
+package com.poguesquest.utils;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+// Sort-and-sweep broadphase between two sets of boxes (e.g. bullets and enemies).
+// Boxes are sorted along x and swept for overlaps; only pairs overlapping on both
+// axes come out as candidates. Every box carries a stable key, such as an entity id,
+// besides the id handed back in pairs. Each set remembers its sorted order by key, so
+// the next tick starts from nearly sorted boxes even when the caller's lists were
+// reshuffled, and the insertion sort only has to fix up what moved since last time.
+public class SweepAndPrune {
+    private final BoxSet setA = new BoxSet();
+    private final BoxSet setB = new BoxSet();
+    private int[] activeA = new int[16];
+    private int[] activeB = new int[16];
+    private int[] pairA = new int[16];
+    private int[] pairB = new int[16];
+    private int pairCount;
+
+    // Boxes of one set, stored by slot in parallel arrays
+    private static class BoxSet {
+        int[] ids = new int[16];
+        int[] keys = new int[16];
+        int[] minX = new int[16];
+        int[] maxX = new int[16];
+        int[] minY = new int[16];
+        int[] maxY = new int[16];
+        int[] order = new int[16]; // Slots sorted by minX
+        int[] sortedKeys = new int[16]; // Keys in the order of the last sort
+        int sortedCount;
+        boolean[] placed = new boolean[16];
+        int[] slotByKey = new int[32]; // Open addressing, slot + 1 per entry, 0 when empty
+        int count;
+
+        void add(int id, int key, int boxX, int boxY, int boxWidth, int boxHeight) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                keys = Arrays.copyOf(keys, capacity);
+                minX = Arrays.copyOf(minX, capacity);
+                maxX = Arrays.copyOf(maxX, capacity);
+                minY = Arrays.copyOf(minY, capacity);
+                maxY = Arrays.copyOf(maxY, capacity);
+                order = Arrays.copyOf(order, capacity);
+                sortedKeys = Arrays.copyOf(sortedKeys, capacity);
+                placed = new boolean[capacity];
+                slotByKey = new int[capacity * 2];
+            }
+            ids[count] = id;
+            keys[count] = key;
+            minX[count] = boxX;
+            maxX[count] = boxX + boxWidth;
+            minY[count] = boxY;
+            maxY[count] = boxY + boxHeight;
+            count++;
+        }
+
+        // Lay this tick's slots out in last tick's key order, append new keys, then
+        // insertion sort by minX
+        void sort() {
+            int mask = slotByKey.length - 1;
+            Arrays.fill(slotByKey, 0);
+            for (int slot = 0; slot < count; slot++) {
+                int h = hash(keys[slot]) & mask;
+                while (slotByKey[h] != 0) {
+                    h = (h + 1) & mask;
+                }
+                slotByKey[h] = slot + 1;
+                placed[slot] = false;
+            }
+
+            int kept = 0;
+            for (int i = 0; i < sortedCount; i++) {
+                int slot = find(sortedKeys[i], mask);
+                if (slot >= 0 && !placed[slot]) {
+                    order[kept++] = slot;
+                    placed[slot] = true;
+                }
+            }
+            for (int slot = 0; slot < count; slot++) {
+                if (!placed[slot]) {
+                    order[kept++] = slot;
+                }
+            }
+
+            for (int i = 1; i < count; i++) {
+                int slot = order[i];
+                int key = minX[slot];
+                int j = i - 1;
+                while (j >= 0 && minX[order[j]] > key) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = slot;
+            }
+
+            for (int i = 0; i < count; i++) {
+                sortedKeys[i] = keys[order[i]];
+            }
+            sortedCount = count;
+        }
+
+        // Slot holding the key this tick, or -1 if the box is gone
+        private int find(int key, int mask) {
+            for (int h = hash(key) & mask; slotByKey[h] != 0; h = (h + 1) & mask) {
+                int slot = slotByKey[h] - 1;
+                if (keys[slot] == key) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // Start a new tick, the previous sort order is kept
+    public void clear() {
+        setA.count = 0;
+        setB.count = 0;
+        pairCount = 0;
+    }
+
+    // Keys must be unique within a set and stay with the same box from tick to tick
+    public void addA(int id, int key, Rectangle box) {
+        setA.add(id, key, box.x, box.y, box.width, box.height);
+    }
+
+    public void addA(int id, int key, int x, int y, int width, int height) {
+        setA.add(id, key, x, y, width, height);
+    }
+
+    public void addB(int id, int key, Rectangle box) {
+        setB.add(id, key, box.x, box.y, box.width, box.height);
+    }
+
+    public void addB(int id, int key, int x, int y, int width, int height) {
+        setB.add(id, key, x, y, width, height);
+    }
+
+    // Sweep both sets along x and collect A/B pairs whose boxes overlap; returns the pair count
+    public int findPairs() {
+        setA.sort();
+        setB.sort();
+        if (activeA.length < setA.count) activeA = new int[setA.ids.length];
+        if (activeB.length < setB.count) activeB = new int[setB.ids.length];
+
+        int activeCountA = 0;
+        int activeCountB = 0;
+        int a = 0;
+        int b = 0;
+        pairCount = 0;
+
+        // Merge the two sorted lists, keeping the boxes whose x range is still open
+        while (a < setA.count || b < setB.count) {
+            boolean takeA = b >= setB.count
+                    || (a < setA.count && setA.minX[setA.order[a]] <= setB.minX[setB.order[b]]);
+
+            if (takeA) {
+                int slot = setA.order[a++];
+                activeCountB = prune(setB, activeB, activeCountB, setA.minX[slot]);
+                for (int i = 0; i < activeCountB; i++) {
+                    int other = activeB[i];
+                    if (setA.minY[slot] < setB.maxY[other] && setB.minY[other] < setA.maxY[slot]) {
+                        addPair(setA.ids[slot], setB.ids[other]);
+                    }
+                }
+                activeA[activeCountA++] = slot;
+            } else {
+                int slot = setB.order[b++];
+                activeCountA = prune(setA, activeA, activeCountA, setB.minX[slot]);
+                for (int i = 0; i < activeCountA; i++) {
+                    int other = activeA[i];
+                    if (setB.minY[slot] < setA.maxY[other] && setA.minY[other] < setB.maxY[slot]) {
+                        addPair(setA.ids[other], setB.ids[slot]);
+                    }
+                }
+                activeB[activeCountB++] = slot;
+            }
+        }
+        return pairCount;
+    }
+
+    // Remove boxes that end before x from an active list, returns the new length
+    private static int prune(BoxSet set, int[] active, int activeCount, int x) {
+        int kept = 0;
+        for (int i = 0; i < activeCount; i++) {
+            if (set.maxX[active[i]] > x) {
+                active[kept++] = active[i];
+            }
+        }
+        return kept;
+    }
+
+    private void addPair(int idA, int idB) {
+        if (pairCount == pairA.length) {
+            pairA = Arrays.copyOf(pairA, pairCount * 2);
+            pairB = Arrays.copyOf(pairB, pairCount * 2);
+        }
+        pairA[pairCount] = idA;
+        pairB[pairCount] = idB;
+        pairCount++;
+    }
+
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    public int getPairA(int index) {
+        return pairA[index];
+    }
+
+    public int getPairB(int index) {
+        return pairB[index];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,334 @@
+package com.poguesquest.world;
+
+import com.poguesquest.utils.SaveSnapshot;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Streams the world in square chunks around the player. Each chunk is generated from the
+// world seed and its own coordinates on a background thread, a ring ahead of where it is
+// needed. The simulation only sees the window: one fixed-size TileMap over the chunks around
+// the player's chunk, rewritten whenever the player crosses into another chunk.
+// Far chunks are dropped, or kept run-length encoded if they were changed, so memory stays
+// flat however far the player travels. Everything outside the world bounds is wall.
+// A world opened from a MapFile reads its chunks from the file instead of generating them.
+// Loaded chunks are never changed in place (setTile replaces a chunk with a changed copy),
+// so the renderer may read them from its own thread.
+public class ChunkStreamer {
+    public static final int CHUNK_TILES = 32; // Chunk edge length in tiles
+    public static final int WINDOW_RADIUS = 3; // Chunks in the window on each side of the player's chunk
+    public static final int WINDOW_TILES = (2 * WINDOW_RADIUS + 1) * CHUNK_TILES;
+    private static final int PREFETCH_RADIUS = WINDOW_RADIUS + 1; // Generated before the window needs them
+    private static final int KEEP_RADIUS = WINDOW_RADIUS + 2; // Farther chunks are evicted
+    private static final int OBSTACLES_PER_SHAPE = 2; // Per chunk, about the density of the old 50x50 map
+
+    private final long seed;
+    private final int worldWidth; // In tiles
+    private final int worldHeight;
+    private final int startX; // Player start tile, walled in like on a generated map
+    private final int startY;
+    private final MapFile file; // Null for a generated world
+    private final TileMap window = new TileMap(WINDOW_TILES, WINDOW_TILES);
+    private final ConcurrentHashMap<Long, TileMap> loaded = new ConcurrentHashMap<>(); // Written here, read by the renderer
+    private final Map<Long, Future<TileMap>> pending = new HashMap<>();
+    private final Map<Long, byte[]> stored = new HashMap<>(); // Evicted chunks that differ from the seed
+    private final HashSet<Long> changed = new HashSet<>(); // Loaded chunks changed since they were loaded
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chunk-generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int centerX;
+    private int centerY;
+
+    private int recenters;
+    private int stalls; // Window chunks that were not ready in time and had to be waited for
+    private int evictions;
+
+    public ChunkStreamer(long seed, int worldWidth, int worldHeight) {
+        this(seed, worldWidth, worldHeight, startTile(worldWidth), startTile(worldHeight), null);
+    }
+
+    // Stream a saved map. Its seed still drives everything else in the game.
+    public ChunkStreamer(MapFile file) {
+        this(file.getSeed(), file.getWidth(), file.getHeight(), file.getStartX(), file.getStartY(), file);
+    }
+
+    private ChunkStreamer(long seed, int worldWidth, int worldHeight, int startX, int startY, MapFile file) {
+        this.seed = seed;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.startX = startX;
+        this.startY = startY;
+        this.file = file;
+
+        // The first window is generated right here, before there is a tick to stall
+        centerX = Math.floorDiv(startX, CHUNK_TILES);
+        centerY = Math.floorDiv(startY, CHUNK_TILES);
+        for (int cy = centerY - WINDOW_RADIUS; cy <= centerY + WINDOW_RADIUS; cy++) {
+            for (int cx = centerX - WINDOW_RADIUS; cx <= centerX + WINDOW_RADIUS; cx++) {
+                loaded.put(key(cx, cy), generate(cx, cy, null));
+            }
+        }
+        prefetch();
+        fillWindow();
+    }
+
+    // The middle of the chunk at the middle of the world, so the start area never straddles chunks
+    private static int startTile(int worldSize) {
+        int chunkStart = (worldSize / 2) / CHUNK_TILES * CHUNK_TILES;
+        return chunkStart + Math.min(CHUNK_TILES / 2, (worldSize - chunkStart) / 2);
+    }
+
+    // Call once per tick with the player's tile. Returns true when the window moved, after
+    // which everything built from it has to be invalidated.
+    public boolean update(int playerTileX, int playerTileY) {
+        collectFinished();
+        int chunkX = Math.floorDiv(playerTileX, CHUNK_TILES);
+        int chunkY = Math.floorDiv(playerTileY, CHUNK_TILES);
+        if (chunkX == centerX && chunkY == centerY) {
+            return false;
+        }
+        centerX = chunkX;
+        centerY = chunkY;
+
+        evictFarChunks();
+        prefetch();
+        fillWindow();
+        recenters++;
+        return true;
+    }
+
+    // Move finished chunks from the background thread into the loaded set
+    private void collectFinished() {
+        Iterator<Map.Entry<Long, Future<TileMap>>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Future<TileMap>> entry = iterator.next();
+            if (entry.getValue().isDone()) {
+                loaded.put(entry.getKey(), join(entry.getValue()));
+                iterator.remove();
+            }
+        }
+    }
+
+    private void evictFarChunks() {
+        Iterator<Map.Entry<Long, TileMap>> iterator = loaded.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, TileMap> entry = iterator.next();
+            if (isFar(entry.getKey())) {
+                // An unchanged chunk is simply generated again when it is next needed
+                if (changed.remove(entry.getKey())) {
+                    stored.put(entry.getKey(), entry.getValue().encodeRuns());
+                }
+                iterator.remove();
+                evictions++;
+            }
+        }
+        Iterator<Map.Entry<Long, Future<TileMap>>> pendingIterator = pending.entrySet().iterator();
+        while (pendingIterator.hasNext()) {
+            Map.Entry<Long, Future<TileMap>> entry = pendingIterator.next();
+            if (isFar(entry.getKey())) {
+                entry.getValue().cancel(false);
+                pendingIterator.remove();
+            }
+        }
+    }
+
+    private boolean isFar(long key) {
+        int cx = (int) (key >> 32);
+        int cy = (int) key;
+        return Math.abs(cx - centerX) > KEEP_RADIUS || Math.abs(cy - centerY) > KEEP_RADIUS;
+    }
+
+    private void prefetch() {
+        for (int cy = centerY - PREFETCH_RADIUS; cy <= centerY + PREFETCH_RADIUS; cy++) {
+            for (int cx = centerX - PREFETCH_RADIUS; cx <= centerX + PREFETCH_RADIUS; cx++) {
+                long key = key(cx, cy);
+                if (!loaded.containsKey(key) && !pending.containsKey(key)) {
+                    int chunkX = cx;
+                    int chunkY = cy;
+                    byte[] runs = stored.get(key);
+                    pending.put(key, executor.submit(() -> generate(chunkX, chunkY, runs)));
+                }
+            }
+        }
+    }
+
+    // Copy the chunks around the centre into the window. A chunk still being generated is
+    // waited for: the simulation has to see the same tiles on every run.
+    private void fillWindow() {
+        window.setOrigin((centerX - WINDOW_RADIUS) * CHUNK_TILES, (centerY - WINDOW_RADIUS) * CHUNK_TILES);
+        for (int cy = centerY - WINDOW_RADIUS; cy <= centerY + WINDOW_RADIUS; cy++) {
+            for (int cx = centerX - WINDOW_RADIUS; cx <= centerX + WINDOW_RADIUS; cx++) {
+                long key = key(cx, cy);
+                TileMap chunk = loaded.get(key);
+                if (chunk == null) {
+                    Future<TileMap> future = pending.remove(key);
+                    if (!future.isDone()) {
+                        stalls++;
+                    }
+                    chunk = join(future);
+                    loaded.put(key, chunk);
+                }
+                window.paste(chunk);
+            }
+        }
+    }
+
+    private static TileMap join(Future<TileMap> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a chunk", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Chunk generation failed", e.getCause());
+        }
+    }
+
+    // Build one chunk, from its stored runs if it was changed and evicted, otherwise from
+    // the map file or the seed. Runs on the generator thread, so it only touches its
+    // arguments and finals.
+    private TileMap generate(int chunkX, int chunkY, byte[] runs) {
+        int originX = chunkX * CHUNK_TILES;
+        int originY = chunkY * CHUNK_TILES;
+        TileMap chunk;
+        if (runs != null) {
+            chunk = new TileMap(CHUNK_TILES, CHUNK_TILES);
+            chunk.decodeRuns(runs);
+        } else if (file != null) {
+            chunk = file.read(originX, originY, CHUNK_TILES, CHUNK_TILES);
+        } else {
+            MapGenerator generator = new MapGenerator(CHUNK_TILES, CHUNK_TILES, chunkSeed(chunkX, chunkY));
+            chunk = generator.generateChunk(OBSTACLES_PER_SHAPE);
+            if (Math.floorDiv(startX, CHUNK_TILES) == chunkX && Math.floorDiv(startY, CHUNK_TILES) == chunkY) {
+                generator.createPlayerBoundary(startX - originX, startY - originY);
+                generator.createRandomHole(startX - originX, startY - originY);
+            }
+        }
+        chunk.setOrigin(originX, originY);
+
+        if (runs == null) {
+            // The outer ring of the world and everything past it is wall
+            for (int y = originY; y < originY + CHUNK_TILES; y++) {
+                for (int x = originX; x < originX + CHUNK_TILES; x++) {
+                    if (x < 1 || y < 1 || x >= worldWidth - 1 || y >= worldHeight - 1) {
+                        chunk.set(x, y, TileMap.WALL);
+                    }
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private long chunkSeed(int chunkX, int chunkY) {
+        return seed ^ (chunkX * 0x9E3779B97F4A7C15L) ^ (chunkY * 0xC2B2AE3D27D4EB4FL);
+    }
+
+    private static long key(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    // Change a tile inside the window, keeping the change when its chunk is evicted
+    public void setTile(int tileX, int tileY, int value) {
+        if (!window.isInside(tileX, tileY)) {
+            throw new IllegalArgumentException("Tile " + tileX + ", " + tileY + " is outside the loaded window");
+        }
+        long key = key(Math.floorDiv(tileX, CHUNK_TILES), Math.floorDiv(tileY, CHUNK_TILES));
+        TileMap copy = new TileMap(CHUNK_TILES, CHUNK_TILES);
+        copy.copyFrom(loaded.get(key));
+        copy.set(tileX, tileY, value);
+        loaded.put(key, copy);
+        changed.add(key);
+        window.set(tileX, tileY, value);
+    }
+
+    // Every chunk that differs from the seed or the map file. Loaded chunks are passed by
+    // reference, they are never changed once loaded, so this is cheap enough for any tick.
+    public void saveTo(SaveSnapshot snapshot) {
+        for (long key : changed) {
+            snapshot.addChunk(key, loaded.get(key));
+        }
+        for (Map.Entry<Long, byte[]> entry : stored.entrySet()) {
+            if (!changed.contains(entry.getKey())) {
+                snapshot.addChunk(entry.getKey(), entry.getValue()); // Evicted, or reloaded and not changed since
+            }
+        }
+    }
+
+    // Put back a saved chunk, replacing it if it is loaded or being generated. Callers must
+    // rebuild anything derived from the window afterwards.
+    public void restoreChunk(long key, byte[] runs) {
+        stored.put(key, runs);
+        changed.remove(key);
+        Future<TileMap> future = pending.remove(key);
+        if (future != null) {
+            future.cancel(false);
+        }
+        if (loaded.containsKey(key)) {
+            TileMap chunk = generate((int) (key >> 32), (int) key, runs);
+            loaded.put(key, chunk);
+            window.paste(chunk);
+        }
+    }
+
+    // A loaded chunk by chunk coordinates, or null. Safe to call from the render thread.
+    public TileMap getLoadedChunk(int chunkX, int chunkY) {
+        return loaded.get(key(chunkX, chunkY));
+    }
+
+    public TileMap getWindow() {
+        return window;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getStartX() {
+        return startX;
+    }
+
+    public int getStartY() {
+        return startY;
+    }
+
+    public int getWorldWidth() {
+        return worldWidth;
+    }
+
+    public int getWorldHeight() {
+        return worldHeight;
+    }
+
+    public int getLoadedCount() {
+        return loaded.size();
+    }
+
+    public int getStoredCount() {
+        return stored.size();
+    }
+
+    public int getRecenters() {
+        return recenters;
+    }
+
+    public int getStalls() {
+        return stalls;
+    }
+
+    public int getEvictions() {
+        return evictions;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
\ No newline at end of file
@@ -6,71 +6,146 @@ import com.poguesquest.entities.Player;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class EnemyGenerator {
-    private final int[][] map;
-    private final int mapWidth;
-    private final int mapHeight;
-    private final Random random;
+    private final TileMap map;
+    private final SplittableRandom random;
     private final Player player;
     private final BufferedImage walkingSpriteSheet;
     private final BufferedImage idleSpriteSheet;
-    private static final int WORLD_WIDTH = 1024;
-    private static final int WORLD_HEIGHT = 1024;
-    private static final int MIN_DISTANCE = 64; // Minimum distance between enemies
+    private static final int TILE_SIZE = 32;
+    private static final int MIN_DISTANCE = 64; // Minimum distance between enemies, in pixels
+    private static final int PLAYER_EXCLUSION = 1; // Tiles on each side of the player's tile where nothing spawns
+    private static final int CANDIDATES = 30; // Tries around an active sample before it is retired
+    private static final byte EMPTY = 0;
+    private static final byte ENEMY = 1;
+    private static final byte PASSAGE = 2; // A wall sample, only there to carry the sampling across walls
+    private int requestedCount; // Enemies the last generateEnemies call tried to place
 
-    public EnemyGenerator(int[][] map, int mapWidth, int mapHeight, long seed, Player player, BufferedImage walkingSpriteSheet, BufferedImage idleSpriteSheet) {
+    public EnemyGenerator(TileMap map, long seed, Player player, BufferedImage walkingSpriteSheet, BufferedImage idleSpriteSheet) {
         this.map = map;
-        this.mapWidth = mapWidth;
-        this.mapHeight = mapHeight;
-        this.random = new Random(seed);
+        this.random = new SplittableRandom(seed);
         this.player = player;
         this.walkingSpriteSheet = walkingSpriteSheet;
         this.idleSpriteSheet = idleSpriteSheet;
     }
 
+    // Bridson's Poisson-disk sampling on the tile grid of the loaded map. Sampling starts at
+    // the player and grows outward: each step picks a random active sample and tries a few
+    // tiles at one to two times MIN_DISTANCE from it. A floor tile far enough from every enemy
+    // and outside the player's zone gets an enemy, a wall tile far enough from every sample
+    // becomes a passage, so thin and thick walls alike are crossed. A sample whose tries all
+    // fail is retired. Sampling runs until every sample is retired, so the whole reachable
+    // map is covered, then the enemies are drawn uniformly from the floor samples. Every tile
+    // is sampled at most once and each sample costs a bounded number of tries, so the time is
+    // linear in the map, however many enemies are asked for. When the map runs out of room,
+    // fewer enemies than getRequestedCount come back.
     public List<Guardian> generateEnemies(int minEnemies) {
         List<Guardian> enemies = new ArrayList<>();
 
         int numEnemies = random.nextInt(10) + minEnemies; // Ensure at least minEnemies
+        requestedCount = numEnemies;
         System.out.println("Generating " + numEnemies + " enemies.");
-        
-        for (int i = 0; i < numEnemies; i++) {
-            int x, y;
-            boolean validLocation;
-            do {
-                x = random.nextInt(WORLD_WIDTH / 32); // Ensure within world boundaries
-                y = random.nextInt(WORLD_HEIGHT / 32); // Ensure within world boundaries
-                validLocation = isValidSpawnLocation(x, y, enemies);
-            } while (!validLocation);
-
-            System.out.println("Spawning enemy at (" + x * 32 + ", " + y * 32 + ")");
-            enemies.add(new Guardian(x * 32, y * 32, 32, 32, walkingSpriteSheet, idleSpriteSheet, player, map));
-        }
 
-        return enemies;
-    }
+        // Background grid with one cell per tile. Samples are at least MIN_DISTANCE apart, more
+        // than a tile, so a cell never holds two of them.
+        int width = map.getWidth();
+        int height = map.getHeight();
+        byte[] grid = new byte[width * height];
+        int[] active = new int[width * height];
+        int activeCount = 0;
+        int[] candidates = new int[width * height]; // Floor samples, as grid cells
+        int candidateCount = 0;
+
+        int playerTileX = player.getX() / TILE_SIZE;
+        int playerTileY = player.getY() / TILE_SIZE;
+        if (map.isInside(playerTileX, playerTileY)) {
+            int start = (playerTileY - map.getOriginY()) * width + playerTileX - map.getOriginX();
+            grid[start] = PASSAGE;
+            active[activeCount++] = start;
+        }
 
-    private boolean isValidSpawnLocation(int x, int y, List<Guardian> enemies) {
-        // Ensure location is on the floor and not within a 1x1 area around the player
-        if (map[y][x] != 1) return false;
+        double minTiles = MIN_DISTANCE / (double) TILE_SIZE;
+        while (activeCount > 0) {
+            int slot = random.nextInt(activeCount);
+            int fromX = active[slot] % width;
+            int fromY = active[slot] / width;
 
-        int playerTileX = player.getX() / 32;
-        int playerTileY = player.getY() / 32;
+            int sample = -1;
+            for (int attempt = 0; attempt < CANDIDATES && sample < 0; attempt++) {
+                double angle = random.nextDouble() * 2 * Math.PI;
+                double distance = minTiles * (1 + random.nextDouble());
+                int x = fromX + (int) Math.round(Math.cos(angle) * distance);
+                int y = fromY + (int) Math.round(Math.sin(angle) * distance);
+                if (x < 0 || y < 0 || x >= width || y >= height || grid[y * width + x] != EMPTY) {
+                    continue;
+                }
 
-        // Ensure the spawn location is not within a 1x1 area around the player
-        if (Math.abs(x - playerTileX) <= 1 && Math.abs(y - playerTileY) <= 1) return false;
+                int tileX = x + map.getOriginX();
+                int tileY = y + map.getOriginY();
+                if (map.isWalkable(tileX, tileY)) {
+                    boolean nearPlayer = Math.abs(tileX - playerTileX) <= PLAYER_EXCLUSION
+                            && Math.abs(tileY - playerTileY) <= PLAYER_EXCLUSION;
+                    if (nearPlayer || isNear(grid, width, height, x, y, ENEMY)) {
+                        continue;
+                    }
+                    grid[y * width + x] = ENEMY;
+                    candidates[candidateCount++] = y * width + x;
+                } else if (!isNear(grid, width, height, x, y, EMPTY)) {
+                    grid[y * width + x] = PASSAGE;
+                } else {
+                    continue;
+                }
+                sample = y * width + x;
+            }
 
-        // Ensure the spawn location is not too close to other enemies
-        for (Guardian enemy : enemies) {
-            int enemyTileX = enemy.getX() / 32;
-            int enemyTileY = enemy.getY() / 32;
-            if (Math.abs(x - enemyTileX) * 32 < MIN_DISTANCE && Math.abs(y - enemyTileY) * 32 < MIN_DISTANCE) {
-                return false;
+            if (sample >= 0) {
+                active[activeCount++] = sample;
+            } else {
+                active[slot] = active[--activeCount];
             }
         }
 
-        return true;
+        // Partial Fisher-Yates shuffle: the first numEnemies candidates become a uniform pick.
+        // Any subset of the samples keeps them MIN_DISTANCE apart.
+        int count = Math.min(numEnemies, candidateCount);
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(candidateCount - i);
+            int cell = candidates[j];
+            candidates[j] = candidates[i];
+            candidates[i] = cell;
+
+            int tileX = cell % width + map.getOriginX();
+            int tileY = cell / width + map.getOriginY();
+            enemies.add(new Guardian(tileX * TILE_SIZE, tileY * TILE_SIZE, 32, 32, walkingSpriteSheet, idleSpriteSheet, player, map, random.split()));
+        }
+        return enemies;
+    }
+
+    // How many enemies the last generateEnemies call tried to place
+    public int getRequestedCount() {
+        return requestedCount;
+    }
+
+    // True if a sample of the given kind is closer than MIN_DISTANCE to grid cell x, y.
+    // EMPTY stands for samples of any kind.
+    private static boolean isNear(byte[] grid, int width, int height, int x, int y, byte kind) {
+        int reach = (MIN_DISTANCE - 1) / TILE_SIZE;
+        int minDistanceSquared = MIN_DISTANCE * MIN_DISTANCE;
+        for (int ny = Math.max(0, y - reach); ny <= Math.min(height - 1, y + reach); ny++) {
+            for (int nx = Math.max(0, x - reach); nx <= Math.min(width - 1, x + reach); nx++) {
+                byte cell = grid[ny * width + nx];
+                if (cell == EMPTY || (kind != EMPTY && cell != kind)) {
+                    continue;
+                }
+                int dx = (nx - x) * TILE_SIZE;
+                int dy = (ny - y) * TILE_SIZE;
+                if (dx * dx + dy * dy < minDistanceSquared) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,157 @@
+package com.poguesquest.world;
+
+import java.util.Arrays;
+
+// Breadth-first flow field over the tile map, rooted at the player's tile. Every reachable
+// floor tile stores the direction of its next step along a shortest path to the player, so
+// any number of pursuers share one search and each lookup is a single array read.
+// The field is only rebuilt when the player moves to another tile. Tiles are given in world
+// coordinates and the field covers the map, so a streamed window has to invalidate it when it moves.
+public class FlowField {
+    public static final int UNREACHABLE = -1;
+    private static final byte NONE = 0;
+    private static final byte UP = 1;
+    private static final byte DOWN = 2;
+    private static final byte LEFT = 3;
+    private static final byte RIGHT = 4;
+    private static final int[] STEP_X = { 0, 0, 0, -1, 1 };
+    private static final int[] STEP_Y = { 0, -1, 1, 0, 0 };
+
+    private final TileMap map;
+    private final int width;
+    private final int height;
+    private final int[] distance; // Steps to the root, UNREACHABLE for walls and cut-off floor
+    private final byte[] direction; // Next step toward the root, indexed like distance
+    private final int[] queue;
+    private int rootX = -1; // World tile, or -1 after invalidate
+    private int rootY = -1;
+
+    private int rebuilds;
+    private long lastRebuildNanos;
+    private long totalRebuildNanos;
+
+    public FlowField(TileMap map) {
+        this.map = map;
+        this.height = map.getHeight();
+        this.width = map.getWidth();
+        this.distance = new int[width * height];
+        this.direction = new byte[width * height];
+        this.queue = new int[width * height];
+        Arrays.fill(distance, UNREACHABLE);
+    }
+
+    // Re-root the field on the given tile, doing nothing if it is already rooted there.
+    // Returns true when the field was rebuilt.
+    public boolean update(int tileX, int tileY) {
+        if (tileX == rootX && tileY == rootY) {
+            return false;
+        }
+        rootX = tileX;
+        rootY = tileY;
+
+        long start = System.nanoTime();
+        rebuild();
+        lastRebuildNanos = System.nanoTime() - start;
+        totalRebuildNanos += lastRebuildNanos;
+        rebuilds++;
+        return true;
+    }
+
+    // Force a rebuild on the next update, e.g. after a wall was added or removed
+    public void invalidate() {
+        rootX = -1;
+        rootY = -1;
+    }
+
+    private void rebuild() {
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(direction, NONE);
+        int localX = rootX - map.getOriginX();
+        int localY = rootY - map.getOriginY();
+        if (!isInside(localX, localY)) {
+            return;
+        }
+
+        int root = localY * width + localX;
+        distance[root] = 0;
+        queue[0] = root;
+        int head = 0;
+        int tail = 1;
+
+        // Four-way only, so a path never cuts the corner of a wall
+        while (head < tail) {
+            int current = queue[head++];
+            int x = current % width;
+            int y = current / width;
+            int next = distance[current] + 1;
+            // Each neighbour points back the way we came
+            tail = visit(x, y - 1, DOWN, next, tail);
+            tail = visit(x, y + 1, UP, next, tail);
+            tail = visit(x - 1, y, RIGHT, next, tail);
+            tail = visit(x + 1, y, LEFT, next, tail);
+        }
+    }
+
+    // x and y relative to the map origin, like the arrays
+    private int visit(int x, int y, byte towardParent, int steps, int tail) {
+        if (!map.isWalkable(map.getOriginX() + x, map.getOriginY() + y)) {
+            return tail;
+        }
+        int index = y * width + x;
+        if (distance[index] != UNREACHABLE) {
+            return tail;
+        }
+        distance[index] = steps;
+        direction[index] = towardParent;
+        queue[tail] = index;
+        return tail + 1;
+    }
+
+    private boolean isInside(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    // True if the tile has a next step, i.e. it is reachable and not the root itself
+    public boolean hasStep(int tileX, int tileY) {
+        tileX -= map.getOriginX();
+        tileY -= map.getOriginY();
+        return isInside(tileX, tileY) && direction[tileY * width + tileX] != NONE;
+    }
+
+    // Tile offset of the next step toward the root, -1, 0 or 1
+    public int getStepX(int tileX, int tileY) {
+        tileX -= map.getOriginX();
+        tileY -= map.getOriginY();
+        return isInside(tileX, tileY) ? STEP_X[direction[tileY * width + tileX]] : 0;
+    }
+
+    public int getStepY(int tileX, int tileY) {
+        tileX -= map.getOriginX();
+        tileY -= map.getOriginY();
+        return isInside(tileX, tileY) ? STEP_Y[direction[tileY * width + tileX]] : 0;
+    }
+
+    // Steps to the root, or UNREACHABLE
+    public int getDistance(int tileX, int tileY) {
+        tileX -= map.getOriginX();
+        tileY -= map.getOriginY();
+        return isInside(tileX, tileY) ? distance[tileY * width + tileX] : UNREACHABLE;
+    }
+
+    public int getRebuilds() {
+        return rebuilds;
+    }
+
+    public long getLastRebuildNanos() {
+        return lastRebuildNanos;
+    }
+
+    public long getTotalRebuildNanos() {
+        return totalRebuildNanos;
+    }
+
+    // Average rebuild time in nanoseconds, 0 before the first rebuild
+    public long getAverageRebuildNanos() {
+        return rebuilds == 0 ? 0 : totalRebuildNanos / rebuilds;
+    }
+}
\ No newline at end of file
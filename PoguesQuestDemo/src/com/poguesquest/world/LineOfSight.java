@@ -0,0 +1,132 @@
+package com.poguesquest.world;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// Tile-grid line of sight. Rays are walked tile by tile with a DDA (every tile the segment
+// between two tile centres passes through is visited, in order), and blocked by any wall.
+// Results toward the current target, normally the player's tile, are cached per source
+// tile, so every guardian on a tile shares one ray. The cache is only cleared when the
+// target moves to another tile or the map changes. Tiles are world coordinates, and the
+// cache covers the map, so it has to be cleared when a streamed window moves.
+public class LineOfSight {
+    private static final byte UNKNOWN = 0;
+    private static final byte VISIBLE = 1;
+    private static final byte BLOCKED = 2;
+
+    private final TileMap map;
+    private final int width;
+    private final int height;
+    private final byte[] cache; // Per source tile, whether the target can be seen from it
+    private int targetX = -1;
+    private int targetY = -1;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder casts = new LongAdder();
+    private int clears;
+
+    public LineOfSight(TileMap map) {
+        this.map = map;
+        this.height = map.getHeight();
+        this.width = map.getWidth();
+        this.cache = new byte[width * height];
+    }
+
+    // Point the cache at a new target tile, clearing it only if the target moved.
+    // Must not be called while guardians are updating.
+    public boolean setTarget(int tileX, int tileY) {
+        if (tileX == targetX && tileY == targetY) {
+            return false;
+        }
+        targetX = tileX;
+        targetY = tileY;
+        invalidate();
+        return true;
+    }
+
+    // Forget every cached ray, e.g. after a wall was added or removed
+    public void invalidate() {
+        Arrays.fill(cache, UNKNOWN);
+        clears++;
+    }
+
+    // Whether the target tile can be seen from the given tile. Safe to call from the parallel
+    // guardian update: two threads may cast the same ray, but they write the same byte.
+    public boolean canSeeTarget(int tileX, int tileY) {
+        lookups.increment();
+        int localX = tileX - map.getOriginX();
+        int localY = tileY - map.getOriginY();
+        if (localX < 0 || localY < 0 || localX >= width || localY >= height) {
+            return false;
+        }
+        int index = localY * width + localX;
+        byte cached = cache[index];
+        if (cached == UNKNOWN) {
+            casts.increment();
+            cached = isClear(tileX, tileY, targetX, targetY) ? VISIBLE : BLOCKED;
+            cache[index] = cached;
+        }
+        return cached == VISIBLE;
+    }
+
+    // Uncached ray between two tile centres. The ray is always walked from the upper (then
+    // leftmost) end, so A to B and B to A agree even where it grazes a corner.
+    public boolean isClear(int fromX, int fromY, int toX, int toY) {
+        if (fromY > toY || (fromY == toY && fromX > toX)) {
+            return isClear(toX, toY, fromX, fromY);
+        }
+
+        int stepX = Integer.signum(toX - fromX);
+        int stepY = Integer.signum(toY - fromY);
+        int distanceX = Math.abs(toX - fromX);
+        int distanceY = Math.abs(toY - fromY);
+        int x = fromX;
+        int y = fromY;
+        int stepsX = 0;
+        int stepsY = 0;
+
+        while (x != toX || y != toY) {
+            // Compare where the ray crosses the next vertical and the next horizontal tile
+            // border, (2 * steps + 1) / (2 * distance) along it, in exact integer arithmetic
+            long crossX = (2L * stepsX + 1) * distanceY;
+            long crossY = (2L * stepsY + 1) * distanceX;
+            if (crossX < crossY) {
+                x += stepX;
+                stepsX++;
+            } else if (crossY < crossX) {
+                y += stepY;
+                stepsY++;
+            } else {
+                // Exactly through a corner, no seeing between two diagonal walls
+                if (isWall(x + stepX, y) || isWall(x, y + stepY)) {
+                    return false;
+                }
+                x += stepX;
+                y += stepY;
+                stepsX++;
+                stepsY++;
+            }
+            if (isWall(x, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isWall(int tileX, int tileY) {
+        return !map.isWalkable(tileX, tileY);
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    // Rays actually walked, lookups minus casts were answered from the cache
+    public long getCasts() {
+        return casts.sum();
+    }
+
+    public int getClears() {
+        return clears;
+    }
+}
\ No newline at end of file
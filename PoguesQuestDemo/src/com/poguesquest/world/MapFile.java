@@ -0,0 +1,151 @@
+package com.poguesquest.world;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A map saved to disk, so big or hand-made maps can ship instead of being generated at startup.
+// All numbers are big-endian:
+//   header: int magic, short version, short regionTiles, long seed, int width, int height,
+//           int startX, int startY
+//   index:  per region, row by row, int offset and int length of its runs in the data
+//   data:   one tile layer per region, as TileMap runs (value plus walkable bit per tile)
+// The map is cut into square regions that are encoded separately. Opening a file only maps
+// it and reads the header; a region's runs are read, and paged in by the OS, when it is asked for.
+public class MapFile {
+    static final int MAGIC = 0x50514D46; // "PQMF"
+    static final short VERSION = 1;
+    public static final int REGION_TILES = ChunkStreamer.CHUNK_TILES; // One region per streamed chunk
+    private static final int HEADER_BYTES = 32;
+    private static final int INDEX_ENTRY_BYTES = 8;
+
+    private final ByteBuffer buffer; // Read with absolute gets only, so threads can share it
+    private final int regionTiles;
+    private final long seed;
+    private final int width;
+    private final int height;
+    private final int startX;
+    private final int startY;
+    private final int regionsX;
+    private final int regionsY;
+    private final int dataStart;
+
+    private MapFile(ByteBuffer buffer, String path) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a map file: " + path);
+        }
+        short version = buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported map file version " + version);
+        }
+        this.regionTiles = buffer.getShort(6);
+        this.seed = buffer.getLong(8);
+        this.width = buffer.getInt(16);
+        this.height = buffer.getInt(20);
+        this.startX = buffer.getInt(24);
+        this.startY = buffer.getInt(28);
+        this.regionsX = (width + regionTiles - 1) / regionTiles;
+        this.regionsY = (height + regionTiles - 1) / regionTiles;
+        this.dataStart = HEADER_BYTES + regionsX * regionsY * INDEX_ENTRY_BYTES;
+        if (buffer.capacity() < dataStart) {
+            throw new IOException("Map file is truncated: " + path);
+        }
+    }
+
+    // Memory-map a map file. Only the header is read here.
+    public static MapFile open(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MapFile(buffer, path);
+        }
+    }
+
+    // Write a whole map, its origin at 0, 0, with the seed the game should use on it
+    public static void write(String path, TileMap map, long seed, int startX, int startY) throws IOException {
+        int regionsX = (map.getWidth() + REGION_TILES - 1) / REGION_TILES;
+        int regionsY = (map.getHeight() + REGION_TILES - 1) / REGION_TILES;
+        ByteBuffer[] buffers = new ByteBuffer[1 + regionsX * regionsY];
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES + regionsX * regionsY * INDEX_ENTRY_BYTES);
+        head.putInt(MAGIC).putShort(VERSION).putShort((short) REGION_TILES).putLong(seed)
+                .putInt(map.getWidth()).putInt(map.getHeight()).putInt(startX).putInt(startY);
+
+        int offset = 0;
+        for (int ry = 0; ry < regionsY; ry++) {
+            for (int rx = 0; rx < regionsX; rx++) {
+                byte[] runs = map.encodeRuns(rx * REGION_TILES, ry * REGION_TILES, REGION_TILES, REGION_TILES);
+                head.putInt(offset).putInt(runs.length);
+                buffers[1 + ry * regionsX + rx] = ByteBuffer.wrap(runs);
+                offset += runs.length;
+            }
+        }
+        buffers[0] = head.flip();
+
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long remaining = head.remaining() + (long) offset;
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+    }
+
+    // One region, as a map with its origin at the region's first tile. Tiles outside the saved
+    // map are walls, and so is every region outside it.
+    public TileMap readRegion(int regionX, int regionY) {
+        TileMap region = new TileMap(regionTiles, regionTiles);
+        region.setOrigin(regionX * regionTiles, regionY * regionTiles);
+        if (regionX < 0 || regionY < 0 || regionX >= regionsX || regionY >= regionsY) {
+            return region;
+        }
+        int entry = HEADER_BYTES + (regionY * regionsX + regionX) * INDEX_ENTRY_BYTES;
+        region.decodeRuns(buffer, dataStart + buffer.getInt(entry), buffer.getInt(entry + 4));
+        return region;
+    }
+
+    // The tiles of any rectangle of the world, decoding only the regions it overlaps
+    public TileMap read(int originX, int originY, int areaWidth, int areaHeight) {
+        TileMap area = new TileMap(areaWidth, areaHeight);
+        area.setOrigin(originX, originY);
+        int lastX = Math.floorDiv(originX + areaWidth - 1, regionTiles);
+        int lastY = Math.floorDiv(originY + areaHeight - 1, regionTiles);
+        for (int ry = Math.floorDiv(originY, regionTiles); ry <= lastY; ry++) {
+            for (int rx = Math.floorDiv(originX, regionTiles); rx <= lastX; rx++) {
+                area.paste(readRegion(rx, ry));
+            }
+        }
+        return area;
+    }
+
+    // The whole map, decoded
+    public TileMap readAll() {
+        return read(0, 0, width, height);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getStartX() {
+        return startX;
+    }
+
+    public int getStartY() {
+        return startY;
+    }
+
+    public int getRegionTiles() {
+        return regionTiles;
+    }
+}
\ No newline at end of file
@@ -1,112 +1,220 @@
 package com.poguesquest.world;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+// Generates a map in phases: carve the floor, stamp the obstacles, wall in the player, then
+// type the walls. With more than one thread the carve, stamp and wall phases run over
+// fork-join in bands of whole rows. Obstacle positions are drawn up front in the same order
+// as before, every band stamps the parts of them that fall in its own rows, and the wall
+// pass reads the rows just outside its band (the halo) but only writes its own. TileMap keeps
+// each row in its own bitset words, so bands never write the same memory, and the result is
+// the same map for any number of threads.
 public class MapGenerator {
+    private static final int BAND_ROWS = 64; // Rows per fork-join leaf task
+    private static final int T_WALL = 0, L_WALL = 1, I_WALL = 2, PLUS_WALL = 3, SQUARE_WALL = 4;
+    private static final int CARVE = 0, STAMP = 1, WALLS = 2, WALL_TYPES = 3;
+
     private final int width;
     private final int height;
-    private final int[][] map;
-    private final Random random;
+    private final int threads;
+    private final TileMap map;
+    private final SplittableRandom random;
     private final WallGenerator wallGenerator;
+    private int[] obstacleShapes = new int[0];
+    private int[] obstacleX = new int[0];
+    private int[] obstacleY = new int[0];
 
     // Constructor to initialize the map generator with dimensions and seed
     public MapGenerator(int width, int height, long seed) {
+        this(width, height, seed, 1);
+    }
+
+    // Same map, generated on the given number of threads
+    public MapGenerator(int width, int height, long seed, int threads) {
         this.width = width;
         this.height = height;
-        this.map = new int[height][width];
-        this.random = new Random(seed);
+        this.threads = threads;
+        this.map = new TileMap(width, height);
+        this.random = new SplittableRandom(seed);
         this.wallGenerator = new WallGenerator(width, height, map);
     }
 
     // Method to generate the map with obstacles and starting position
-    public int[][] generateMap(int startX, int startY) {
+    public TileMap generateMap(int startX, int startY) {
         // Ensure the starting position is within bounds
         if (startX < 1 || startX >= width - 1 || startY < 1 || startY >= height - 1) {
             throw new IllegalArgumentException("Starting position is out of bounds");
         }
 
-        // Carve the initial floor area for the whole map
-        for (int y = 1; y < height - 1; y++) {
-            for (int x = 1; x < width - 1; x++) {
-                map[y][x] = 1; // Carve floor (1 = floor)
-            }
-        }
+        // Pick the obstacle positions, the only part that needs the random stream in order
+        drawObstacles(5);
 
-        // Add detailed obstacle walls
-        addDetailedObstacles();
+        ForkJoinPool pool = threads > 1 && height > BAND_ROWS ? new ForkJoinPool(threads) : null;
+        try {
+            // Carve the initial floor area for the whole map, then add detailed obstacle walls
+            runPhase(pool, CARVE);
+            runPhase(pool, STAMP);
 
-        // Keep the wall that surrounds the player
-        createPlayerBoundary(startX, startY);
-        createRandomHole(startX, startY);
+            // Keep the wall that surrounds the player
+            createPlayerBoundary(startX, startY);
+            createRandomHole(startX, startY);
 
-        // Update wall types using the WallGenerator
-        wallGenerator.generateWalls();
-        wallGenerator.updateWallTypes();
+            // Update wall types using the WallGenerator
+            runPhase(pool, WALLS);
+            runPhase(pool, WALL_TYPES);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        return map;
+    }
 
+    // Method to generate one chunk of a streamed world: all floor with obstacles, no outer
+    // wall so it joins up with its neighbours, and walls left untyped
+    public TileMap generateChunk(int obstaclesPerShape) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                map.set(x, y, TileMap.FLOOR);
+            }
+        }
+        drawObstacles(obstaclesPerShape);
+        stampObstacles(0, height);
         return map;
     }
 
-    // Method to add detailed obstacles
-    private void addDetailedObstacles() {
-        // Adding multiple T-walls
-        for (int i = 0; i < 5; i++) {
-            addTWall(random.nextInt(width - 4) + 2, random.nextInt(height - 4) + 2);
+    // One phase over the whole map, each phase finishing before the next starts
+    private void runPhase(ForkJoinPool pool, int phase) {
+        if (pool == null) {
+            runBand(phase, 0, height);
+        } else {
+            pool.invoke(new BandTask(phase, 0, height));
+        }
+    }
+
+    // Run one phase over rows minY (inclusive) to maxY (exclusive), writing only those rows
+    private void runBand(int phase, int minY, int maxY) {
+        switch (phase) {
+            case CARVE -> {
+                for (int y = Math.max(1, minY); y < Math.min(height - 1, maxY); y++) {
+                    for (int x = 1; x < width - 1; x++) {
+                        map.set(x, y, TileMap.FLOOR); // Carve floor (1 = floor)
+                    }
+                }
+            }
+            case STAMP -> stampObstacles(minY, maxY);
+            case WALLS -> wallGenerator.generateWalls(minY, maxY);
+            case WALL_TYPES -> wallGenerator.updateWallTypes(minY, maxY);
+        }
+    }
+
+    private class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int phase;
+        private final int minY, maxY;
+
+        BandTask(int phase, int minY, int maxY) {
+            this.phase = phase;
+            this.minY = minY;
+            this.maxY = maxY;
         }
-        // Adding multiple L-walls
-        for (int i = 0; i < 5; i++) {
-            addLWall(random.nextInt(width - 4) + 2, random.nextInt(height - 4) + 2);
+
+        @Override
+        protected void compute() {
+            if (maxY - minY <= BAND_ROWS) {
+                runBand(phase, minY, maxY);
+                return;
+            }
+            // Split on a band boundary so leaves are always whole bands
+            int middle = minY + (maxY - minY) / BAND_ROWS / 2 * BAND_ROWS;
+            if (middle == minY) {
+                middle += BAND_ROWS;
+            }
+            invokeAll(new BandTask(phase, minY, middle), new BandTask(phase, middle, maxY));
         }
-        // Adding multiple I-walls
-        for (int i = 0; i < 5; i++) {
-            addIWall(random.nextInt(width - 4) + 2, random.nextInt(height - 4) + 2);
+    }
+
+    // Method to pick the detailed obstacles, in the same order they were always drawn
+    private void drawObstacles(int perShape) {
+        int count = perShape * 5;
+        obstacleShapes = new int[count];
+        obstacleX = new int[count];
+        obstacleY = new int[count];
+        int i = 0;
+        for (int shape : new int[] { T_WALL, L_WALL, I_WALL, PLUS_WALL, SQUARE_WALL }) {
+            for (int n = 0; n < perShape; n++, i++) {
+                obstacleShapes[i] = shape;
+                obstacleX[i] = random.nextInt(width - 4) + 2;
+                obstacleY[i] = random.nextInt(height - 4) + 2;
+            }
         }
-        // Adding multiple plus (+) walls
-        for (int i = 0; i < 5; i++) {
-            addPlusWall(random.nextInt(width - 4) + 2, random.nextInt(height - 4) + 2);
+    }
+
+    // Method to add the drawn obstacles, only the parts in rows minY to maxY
+    private void stampObstacles(int minY, int maxY) {
+        for (int i = 0; i < obstacleShapes.length; i++) {
+            int x = obstacleX[i];
+            int y = obstacleY[i];
+            if (y + 3 < minY || y - 1 >= maxY) {
+                continue; // No shape reaches more than one row up or three down
+            }
+            switch (obstacleShapes[i]) {
+                case T_WALL -> addTWall(x, y, minY, maxY);
+                case L_WALL -> addLWall(x, y, minY, maxY);
+                case I_WALL -> addIWall(x, y, minY, maxY);
+                case PLUS_WALL -> addPlusWall(x, y, minY, maxY);
+                case SQUARE_WALL -> addSquareWall(x, y, minY, maxY);
+            }
         }
-        // Adding multiple square walls
-        for (int i = 0; i < 5; i++) {
-            addSquareWall(random.nextInt(width - 4) + 2, random.nextInt(height - 4) + 2);
+    }
+
+    // Make one obstacle tile a wall, if it is in the band being stamped
+    private void setWall(int x, int y, int minY, int maxY) {
+        if (y >= minY && y < maxY) {
+            map.set(x, y, TileMap.WALL);
         }
     }
 
     // Method to create a T-shaped wall
-    private void addTWall(int centerX, int centerY) {
+    private void addTWall(int centerX, int centerY, int minY, int maxY) {
         for (int x = centerX - 1; x <= centerX + 1; x++) {
-            map[centerY][x] = 0; // Horizontal part of T
+            setWall(x, centerY, minY, maxY); // Horizontal part of T
         }
-        map[centerY - 1][centerX] = 0; // Vertical part of T
+        setWall(centerX, centerY - 1, minY, maxY); // Vertical part of T
     }
 
     // Method to create an L-shaped wall
-    private void addLWall(int startX, int startY) {
+    private void addLWall(int startX, int startY, int minY, int maxY) {
         for (int y = startY; y < startY + 3; y++) {
-            map[y][startX] = 0; // Vertical part of L
+            setWall(startX, y, minY, maxY); // Vertical part of L
         }
-        map[startY + 2][startX + 1] = 0; // Horizontal part of L
+        setWall(startX + 1, startY + 2, minY, maxY); // Horizontal part of L
     }
 
     // Method to create an I-shaped wall
-    private void addIWall(int startX, int startY) {
-        for (int y = startY; y < startY + 4; y++) {
-            map[y][startX] = 0; // Vertical I wall
+    private void addIWall(int startX, int startY, int minY, int maxY) {
+        for (int y = startY; y < startY + 4 && y < height; y++) {
+            setWall(startX, y, minY, maxY); // Vertical I wall, cut short at the bottom edge
         }
     }
 
     // Method to create a plus-shaped (+) wall
-    private void addPlusWall(int centerX, int centerY) {
-        map[centerY][centerX] = 0;
-        map[centerY - 1][centerX] = 0;
-        map[centerY + 1][centerX] = 0;
-        map[centerY][centerX - 1] = 0;
-        map[centerY][centerX + 1] = 0;
+    private void addPlusWall(int centerX, int centerY, int minY, int maxY) {
+        setWall(centerX, centerY, minY, maxY);
+        setWall(centerX, centerY - 1, minY, maxY);
+        setWall(centerX, centerY + 1, minY, maxY);
+        setWall(centerX - 1, centerY, minY, maxY);
+        setWall(centerX + 1, centerY, minY, maxY);
     }
 
     // Method to create a square-shaped wall
-    private void addSquareWall(int centerX, int centerY) {
+    private void addSquareWall(int centerX, int centerY, int minY, int maxY) {
         for (int y = centerY - 1; y <= centerY + 1; y++) {
             for (int x = centerX - 1; x <= centerX + 1; x++) {
-                map[y][x] = 0;
+                setWall(x, y, minY, maxY);
             }
         }
     }
@@ -117,9 +225,9 @@ public class MapGenerator {
             for (int x = startX - 2; x <= startX + 2; x++) {
                 if (isWithinBounds(x, y)) {
                     if (x == startX - 2 || x == startX + 2 || y == startY - 2 || y == startY + 2) {
-                        map[y][x] = 0; // Set boundary tiles to walls
+                        map.set(x, y, TileMap.WALL); // Set boundary tiles to walls
                     } else {
-                        map[y][x] = 1; // Set inner tiles to floors
+                        map.set(x, y, TileMap.FLOOR); // Set inner tiles to floors
                     }
                 }
             }
@@ -135,25 +243,25 @@ public class MapGenerator {
             case 0 -> { // Top side (y = startY - 2)
                 holePosition = random.nextInt(3) - 1 + startX;
                 if (isWithinBounds(holePosition, startY - 2)) {
-                    map[startY - 2][holePosition] = 1; // Create hole in the top boundary wall
+                    map.set(holePosition, startY - 2, TileMap.FLOOR); // Create hole in the top boundary wall
                 }
             }
             case 1 -> { // Bottom side (y = startY + 2)
                 holePosition = random.nextInt(3) - 1 + startX;
                 if (isWithinBounds(holePosition, startY + 2)) {
-                    map[startY + 2][holePosition] = 1; // Create hole in the bottom boundary wall
+                    map.set(holePosition, startY + 2, TileMap.FLOOR); // Create hole in the bottom boundary wall
                 }
             }
             case 2 -> { // Left side (x = startX - 2)
                 holePosition = random.nextInt(3) - 1 + startY;
                 if (isWithinBounds(startX - 2, holePosition)) {
-                    map[holePosition][startX - 2] = 1; // Create hole in the left boundary wall
+                    map.set(startX - 2, holePosition, TileMap.FLOOR); // Create hole in the left boundary wall
                 }
             }
             case 3 -> { // Right side (x = startX + 2)
                 holePosition = random.nextInt(3) - 1 + startY;
                 if (isWithinBounds(startX + 2, holePosition)) {
-                    map[holePosition][startX + 2] = 1; // Create hole in the right boundary wall
+                    map.set(startX + 2, holePosition, TileMap.FLOOR); // Create hole in the right boundary wall
                 }
             }
         }
@@ -168,7 +276,7 @@ public class MapGenerator {
     public void printMap() {
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
-                if (map[y][x] == 1) {
+                if (map.isWalkable(x, y)) {
                     System.out.print('.'); // Floor
                 } else {
                     System.out.print('#'); // Wall
@@ -179,7 +287,7 @@ public class MapGenerator {
     }
 
     // Getter for the map
-    public int[][] getMap() {
+    public TileMap getMap() {
         return map;
     }
 }
@@ -0,0 +1,61 @@
+package com.poguesquest.world;
+
+// A route found by the Pathfinder. It holds only the abstract waypoints; the tiles between
+// two waypoints are refined when the walker reaches them, so a path that gets abandoned
+// halfway never pays for the rest.
+public class Path {
+    private final Pathfinder pathfinder;
+    private final int[] waypoints; // Tile indices, from the start tile to the goal tile
+    private final int version;
+    private int nextWaypoint = 1;
+    private int[] segment;
+    private int segmentIndex;
+    private int tile;
+
+    Path(Pathfinder pathfinder, int[] waypoints, int version) {
+        this.pathfinder = pathfinder;
+        this.waypoints = waypoints;
+        this.version = version;
+        this.tile = waypoints[0];
+    }
+
+    // Step to the next tile, refining the next segment when needed.
+    // Returns false at the goal, or if the map changed so the rest can't be refined.
+    public boolean advance() {
+        while (segment == null || segmentIndex >= segment.length) {
+            if (nextWaypoint >= waypoints.length) {
+                return false;
+            }
+            segment = pathfinder.refine(waypoints[nextWaypoint - 1], waypoints[nextWaypoint]);
+            nextWaypoint++;
+            segmentIndex = 0;
+            if (segment == null) {
+                return false;
+            }
+        }
+        tile = segment[segmentIndex++];
+        return true;
+    }
+
+    // Current tile, the start tile until the first advance
+    public int getTileX() {
+        return pathfinder.getOriginX() + tile % pathfinder.getWidth();
+    }
+
+    public int getTileY() {
+        return pathfinder.getOriginY() + tile / pathfinder.getWidth();
+    }
+
+    public boolean isAtGoal() {
+        return tile == waypoints[waypoints.length - 1];
+    }
+
+    // True once the map has changed since this path was found, callers should search again
+    public boolean isStale() {
+        return version != pathfinder.getVersion();
+    }
+
+    public int getWaypointCount() {
+        return waypoints.length;
+    }
+}
\ No newline at end of file
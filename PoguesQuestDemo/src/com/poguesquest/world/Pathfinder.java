@@ -0,0 +1,543 @@
+package com.poguesquest.world;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Hierarchical A* (HPA*) over the tile map. The map is cut into square clusters, walkable
+// gaps along every cluster border become entrance nodes, and the nodes inside a cluster are
+// linked by their walking distance. A long search then runs over this small abstract graph,
+// and the tile by tile path is only refined one segment at a time as it is walked.
+// Refined segments are cached, and changing a tile only rebuilds the clusters around it.
+// Tiles are world coordinates; internally everything is indexed from the map origin.
+// Not thread-safe, use it from the simulation thread.
+public class Pathfinder {
+    public static final int CLUSTER_SIZE = 10; // Cluster edge length in tiles
+    private static final int MAX_ENTRANCE_WIDTH = 6; // Wider gaps get an entrance at each end instead of one in the middle
+    private static final int SEGMENT_CACHE_SIZE = 1024;
+    private static final int[] NO_TILES = new int[0];
+
+    private final TileMap map;
+    private final int width;
+    private final int height;
+    private final int clustersX;
+    private final int clustersY;
+    private final int[][] eastEntrances;  // Per cluster, tiles on its east edge that open into the cluster to the right
+    private final int[][] southEntrances; // Per cluster, tiles on its south edge that open into the cluster below
+    private final int[][] clusterNodes;   // Per cluster, the sorted tile index of every entrance node inside it
+    private final int[][] clusterCosts;   // Per cluster, walking distance between each pair of its nodes, -1 if cut off
+    private final int[] nodeSlot;         // Per tile, its position in its cluster's node list, or -1
+    private final boolean[] dirty;
+    private boolean anyDirty;
+    private int version; // Bumped on every map change, so old paths can tell they are stale
+
+    // Abstract search state, indexed by tile plus the two virtual nodes. The stamp saves
+    // clearing the arrays before every search.
+    private final int goalNode;
+    private final int startNode;
+    private final int[] gScore;
+    private final int[] cameFrom;
+    private final int[] searchStamp;
+    private int stamp;
+
+    // Breadth-first search scratch for a single cluster
+    private final int[] localDistance = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int[] localParent = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int[] localQueue = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+
+    private final LinkedHashMap<Long, Segment> segments;
+    private int searches;
+    private int segmentHits;
+    private int segmentMisses;
+    private int clusterRebuilds;
+
+    // A refined piece of path inside one cluster, from just after its first tile up to its last
+    private static class Segment {
+        final int cluster;
+        final int[] tiles;
+
+        Segment(int cluster, int[] tiles) {
+            this.cluster = cluster;
+            this.tiles = tiles;
+        }
+    }
+
+    public Pathfinder(TileMap map) {
+        this.map = map;
+        this.height = map.getHeight();
+        this.width = map.getWidth();
+        this.clustersX = (width + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clustersY = (height + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+
+        int clusterCount = clustersX * clustersY;
+        eastEntrances = new int[clusterCount][];
+        southEntrances = new int[clusterCount][];
+        clusterNodes = new int[clusterCount][];
+        clusterCosts = new int[clusterCount][];
+        dirty = new boolean[clusterCount];
+        nodeSlot = new int[width * height];
+        Arrays.fill(nodeSlot, -1);
+        for (int c = 0; c < clusterCount; c++) {
+            clusterNodes[c] = NO_TILES;
+        }
+
+        goalNode = width * height;
+        startNode = goalNode + 1;
+        gScore = new int[goalNode + 2];
+        cameFrom = new int[goalNode + 2];
+        searchStamp = new int[goalNode + 2];
+
+        segments = new LinkedHashMap<>(64, 0.75f, true) { // Access order, eldest = least recently used
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Segment> eldest) {
+                return size() > SEGMENT_CACHE_SIZE;
+            }
+        };
+
+        Arrays.fill(dirty, true);
+        anyDirty = true;
+        rebuildDirtyClusters();
+    }
+
+    // Call after a tile changed between wall and floor. Only its cluster is rebuilt, on the next search.
+    public void invalidate(int tileX, int tileY) {
+        int cluster = clusterOf((tileY - map.getOriginY()) * width + tileX - map.getOriginX());
+        dirty[cluster] = true;
+        anyDirty = true;
+        version++;
+
+        Iterator<Segment> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().cluster == cluster) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Call after the whole map changed, e.g. when a streamed window moved. Every cluster is rebuilt on the next search.
+    public void invalidateAll() {
+        Arrays.fill(dirty, true);
+        anyDirty = true;
+        version++;
+        segments.clear();
+    }
+
+    // Path between two tiles, or null if either is a wall or no path exists.
+    // Only the abstract route is searched here, the tiles are refined as the path is walked.
+    public Path findPath(int startX, int startY, int goalX, int goalY) {
+        if (!map.isWalkable(startX, startY) || !map.isWalkable(goalX, goalY)) {
+            return null;
+        }
+        rebuildDirtyClusters();
+        searches++;
+
+        int start = (startY - map.getOriginY()) * width + startX - map.getOriginX();
+        int goal = (goalY - map.getOriginY()) * width + goalX - map.getOriginX();
+        int startCluster = clusterOf(start);
+        int goalCluster = clusterOf(goal);
+
+        // Close enough to stay inside one cluster, no abstract search needed
+        searchCluster(startCluster, start);
+        if (startCluster == goalCluster && localDistance[toLocal(startCluster, goal)] >= 0) {
+            return new Path(this, new int[] { start, goal }, version);
+        }
+
+        int[] waypoints = searchAbstract(start, goal, startCluster, goalCluster);
+        return waypoints == null ? null : new Path(this, waypoints, version);
+    }
+
+    private int[] searchAbstract(int start, int goal, int startCluster, int goalCluster) {
+        // Walking distance from the goal to every node of its cluster (the grid is undirected)
+        int[] goalNodes = clusterNodes[goalCluster];
+        int[] goalCosts = new int[goalNodes.length];
+        searchCluster(goalCluster, goal);
+        for (int i = 0; i < goalNodes.length; i++) {
+            goalCosts[i] = localDistance[toLocal(goalCluster, goalNodes[i])];
+        }
+
+        stamp++;
+        PriorityQueue<Long> open = new PriorityQueue<>();
+
+        // The start is linked to every node of its own cluster it can walk to
+        searchCluster(startCluster, start);
+        for (int node : clusterNodes[startCluster]) {
+            int cost = localDistance[toLocal(startCluster, node)];
+            if (cost >= 0) {
+                relax(open, node, cost, startNode, goal);
+            }
+        }
+
+        while (!open.isEmpty()) {
+            long entry = open.poll();
+            int node = (int) entry;
+            int g = gScore[node];
+            if ((int) (entry >>> 32) != g + heuristic(node, goal)) {
+                continue; // Stale entry, this node was reached more cheaply since
+            }
+            if (node == goalNode) {
+                return reconstruct(start, goal);
+            }
+
+            int cluster = clusterOf(node);
+            int slot = nodeSlot[node];
+            int[] nodes = clusterNodes[cluster];
+
+            // To the goal itself
+            if (cluster == goalCluster && goalCosts[slot] >= 0) {
+                relax(open, goalNode, g + goalCosts[slot], node, goal);
+            }
+
+            // Across the cluster
+            int[] costs = clusterCosts[cluster];
+            for (int other = 0; other < nodes.length; other++) {
+                int cost = costs[slot * nodes.length + other];
+                if (other != slot && cost >= 0) {
+                    relax(open, nodes[other], g + cost, node, goal);
+                }
+            }
+
+            // Through the entrance into the neighbouring cluster
+            int x = node % width;
+            int y = node / width;
+            relaxEntrance(open, node, x + 1, y, cluster, g, goal);
+            relaxEntrance(open, node, x - 1, y, cluster, g, goal);
+            relaxEntrance(open, node, x, y + 1, cluster, g, goal);
+            relaxEntrance(open, node, x, y - 1, cluster, g, goal);
+        }
+        return null;
+    }
+
+    private void relaxEntrance(PriorityQueue<Long> open, int node, int x, int y, int cluster, int g, int goal) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return;
+        }
+        int neighbour = y * width + x;
+        if (nodeSlot[neighbour] >= 0 && clusterOf(neighbour) != cluster) {
+            relax(open, neighbour, g + 1, node, goal);
+        }
+    }
+
+    private void relax(PriorityQueue<Long> open, int node, int g, int from, int goal) {
+        if (searchStamp[node] == stamp && gScore[node] <= g) {
+            return;
+        }
+        searchStamp[node] = stamp;
+        gScore[node] = g;
+        cameFrom[node] = from;
+        // Ties break on the node index, so the same query always returns the same path
+        open.add(((long) (g + heuristic(node, goal)) << 32) | node);
+    }
+
+    // Manhattan distance, exact on a four-way grid without walls
+    private int heuristic(int node, int goal) {
+        if (node == goalNode) {
+            return 0;
+        }
+        return Math.abs(node % width - goal % width) + Math.abs(node / width - goal / width);
+    }
+
+    private int[] reconstruct(int start, int goal) {
+        int count = 2;
+        for (int node = cameFrom[goalNode]; node != startNode; node = cameFrom[node]) {
+            count++;
+        }
+        int[] waypoints = new int[count];
+        waypoints[0] = start;
+        waypoints[count - 1] = goal;
+        int index = count - 2;
+        for (int node = cameFrom[goalNode]; node != startNode; node = cameFrom[node]) {
+            waypoints[index--] = node;
+        }
+        return waypoints;
+    }
+
+    // Tiles walked from one waypoint to the next, excluding the first and including the last,
+    // or null if the map changed and they are no longer connected
+    int[] refine(int from, int to) {
+        if (from == to) {
+            return NO_TILES;
+        }
+        if (Math.abs(from % width - to % width) + Math.abs(from / width - to / width) == 1) {
+            return new int[] { to }; // One step through an entrance
+        }
+
+        long key = ((long) from << 32) | to;
+        Segment cached = segments.get(key);
+        if (cached != null) {
+            segmentHits++;
+            return cached.tiles;
+        }
+        segmentMisses++;
+
+        rebuildDirtyClusters();
+        int cluster = clusterOf(from);
+        searchCluster(cluster, from);
+        int local = toLocal(cluster, to);
+        if (clusterOf(to) != cluster || localDistance[local] < 0) {
+            return null;
+        }
+
+        int[] tiles = new int[localDistance[local]];
+        for (int i = tiles.length - 1; i >= 0; i--) {
+            tiles[i] = toTile(cluster, local);
+            local = localParent[local];
+        }
+        segments.put(key, new Segment(cluster, tiles));
+        return tiles;
+    }
+
+    private void rebuildDirtyClusters() {
+        if (!anyDirty) {
+            return;
+        }
+
+        // Entrances sit on borders, so a changed cluster also changes its neighbours' entrances
+        boolean[] affected = new boolean[dirty.length];
+        for (int c = 0; c < dirty.length; c++) {
+            if (!dirty[c]) {
+                continue;
+            }
+            int cx = c % clustersX;
+            int cy = c / clustersX;
+            buildEastEntrances(cx, cy);
+            buildSouthEntrances(cx, cy);
+            if (cx > 0) {
+                buildEastEntrances(cx - 1, cy);
+            }
+            if (cy > 0) {
+                buildSouthEntrances(cx, cy - 1);
+            }
+            affected[c] = true;
+            if (cx > 0) affected[c - 1] = true;
+            if (cx < clustersX - 1) affected[c + 1] = true;
+            if (cy > 0) affected[c - clustersX] = true;
+            if (cy < clustersY - 1) affected[c + clustersX] = true;
+            dirty[c] = false;
+        }
+
+        for (int c = 0; c < affected.length; c++) {
+            if (affected[c]) {
+                buildNodes(c);
+                buildCosts(c);
+                clusterRebuilds++;
+            }
+        }
+        anyDirty = false;
+    }
+
+    // Entrances between cluster (cx, cy) and the one to its right
+    private void buildEastEntrances(int cx, int cy) {
+        int cluster = cy * clustersX + cx;
+        if (cx == clustersX - 1) {
+            eastEntrances[cluster] = NO_TILES;
+            return;
+        }
+        int x = (cx + 1) * CLUSTER_SIZE - 1;
+        int minY = cy * CLUSTER_SIZE;
+        int maxY = Math.min(height, minY + CLUSTER_SIZE);
+
+        int[] tiles = new int[CLUSTER_SIZE];
+        int count = 0;
+        int runStart = -1;
+        for (int y = minY; y <= maxY; y++) {
+            boolean open = y < maxY && isOpen(x, y) && isOpen(x + 1, y);
+            if (open && runStart < 0) {
+                runStart = y;
+            } else if (!open && runStart >= 0) {
+                count = addEntrances(tiles, count, runStart, y - 1, false, x);
+                runStart = -1;
+            }
+        }
+        eastEntrances[cluster] = Arrays.copyOf(tiles, count);
+    }
+
+    // Entrances between cluster (cx, cy) and the one below it
+    private void buildSouthEntrances(int cx, int cy) {
+        int cluster = cy * clustersX + cx;
+        if (cy == clustersY - 1) {
+            southEntrances[cluster] = NO_TILES;
+            return;
+        }
+        int y = (cy + 1) * CLUSTER_SIZE - 1;
+        int minX = cx * CLUSTER_SIZE;
+        int maxX = Math.min(width, minX + CLUSTER_SIZE);
+
+        int[] tiles = new int[CLUSTER_SIZE];
+        int count = 0;
+        int runStart = -1;
+        for (int x = minX; x <= maxX; x++) {
+            boolean open = x < maxX && isOpen(x, y) && isOpen(x, y + 1);
+            if (open && runStart < 0) {
+                runStart = x;
+            } else if (!open && runStart >= 0) {
+                count = addEntrances(tiles, count, runStart, x - 1, true, y);
+                runStart = -1;
+            }
+        }
+        southEntrances[cluster] = Arrays.copyOf(tiles, count);
+    }
+
+    // One entrance in the middle of a narrow gap, or one at each end of a wide one
+    private int addEntrances(int[] tiles, int count, int first, int last, boolean horizontal, int fixed) {
+        if (last - first + 1 < MAX_ENTRANCE_WIDTH) {
+            tiles[count++] = toTile(horizontal, first + (last - first) / 2, fixed);
+        } else {
+            tiles[count++] = toTile(horizontal, first, fixed);
+            tiles[count++] = toTile(horizontal, last, fixed);
+        }
+        return count;
+    }
+
+    private int toTile(boolean horizontal, int along, int fixed) {
+        return horizontal ? fixed * width + along : along * width + fixed;
+    }
+
+    // Every entrance tile on this cluster's side of its four borders
+    private void buildNodes(int cluster) {
+        for (int node : clusterNodes[cluster]) {
+            nodeSlot[node] = -1;
+        }
+
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        int[] west = cx > 0 ? eastEntrances[cluster - 1] : NO_TILES;
+        int[] north = cy > 0 ? southEntrances[cluster - clustersX] : NO_TILES;
+        int[] east = eastEntrances[cluster];
+        int[] south = southEntrances[cluster];
+
+        int[] nodes = new int[west.length + north.length + east.length + south.length];
+        int count = 0;
+        for (int tile : east) nodes[count++] = tile;
+        for (int tile : south) nodes[count++] = tile;
+        for (int tile : west) nodes[count++] = tile + 1;
+        for (int tile : north) nodes[count++] = tile + width;
+
+        // A corner tile can be an entrance on two borders, keep it once
+        Arrays.sort(nodes);
+        int unique = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            if (i == 0 || nodes[i] != nodes[i - 1]) {
+                nodes[unique++] = nodes[i];
+            }
+        }
+        nodes = Arrays.copyOf(nodes, unique);
+
+        for (int i = 0; i < nodes.length; i++) {
+            nodeSlot[nodes[i]] = i;
+        }
+        clusterNodes[cluster] = nodes;
+    }
+
+    private void buildCosts(int cluster) {
+        int[] nodes = clusterNodes[cluster];
+        int[] costs = new int[nodes.length * nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            searchCluster(cluster, nodes[i]);
+            for (int j = 0; j < nodes.length; j++) {
+                costs[i * nodes.length + j] = localDistance[toLocal(cluster, nodes[j])];
+            }
+        }
+        clusterCosts[cluster] = costs;
+    }
+
+    // Breadth-first search from a tile without leaving its cluster, filling localDistance and localParent
+    private void searchCluster(int cluster, int from) {
+        int minX = (cluster % clustersX) * CLUSTER_SIZE;
+        int minY = (cluster / clustersX) * CLUSTER_SIZE;
+        int maxX = Math.min(width, minX + CLUSTER_SIZE) - 1;
+        int maxY = Math.min(height, minY + CLUSTER_SIZE) - 1;
+
+        Arrays.fill(localDistance, -1);
+        int root = toLocal(cluster, from);
+        localDistance[root] = 0;
+        localQueue[0] = root;
+        int head = 0;
+        int tail = 1;
+
+        while (head < tail) {
+            int current = localQueue[head++];
+            int x = minX + current % CLUSTER_SIZE;
+            int y = minY + current / CLUSTER_SIZE;
+            int distance = localDistance[current] + 1;
+            if (x > minX) tail = visitLocal(current, current - 1, x - 1, y, distance, tail);
+            if (x < maxX) tail = visitLocal(current, current + 1, x + 1, y, distance, tail);
+            if (y > minY) tail = visitLocal(current, current - CLUSTER_SIZE, x, y - 1, distance, tail);
+            if (y < maxY) tail = visitLocal(current, current + CLUSTER_SIZE, x, y + 1, distance, tail);
+        }
+    }
+
+    private int visitLocal(int parent, int local, int x, int y, int distance, int tail) {
+        if (localDistance[local] >= 0 || !isOpen(x, y)) {
+            return tail;
+        }
+        localDistance[local] = distance;
+        localParent[local] = parent;
+        localQueue[tail] = local;
+        return tail + 1;
+    }
+
+    // Walkable test relative to the map origin, for tiles known to be inside the map
+    private boolean isOpen(int x, int y) {
+        return map.isWalkableUnchecked(map.getOriginX() + x, map.getOriginY() + y);
+    }
+
+    private int clusterOf(int tile) {
+        return (tile / width / CLUSTER_SIZE) * clustersX + (tile % width) / CLUSTER_SIZE;
+    }
+
+    private int toLocal(int cluster, int tile) {
+        int x = tile % width - (cluster % clustersX) * CLUSTER_SIZE;
+        int y = tile / width - (cluster / clustersX) * CLUSTER_SIZE;
+        return y * CLUSTER_SIZE + x;
+    }
+
+    private int toTile(int cluster, int local) {
+        int x = (cluster % clustersX) * CLUSTER_SIZE + local % CLUSTER_SIZE;
+        int y = (cluster / clustersX) * CLUSTER_SIZE + local / CLUSTER_SIZE;
+        return y * width + x;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    // World tile of tile index 0
+    public int getOriginX() {
+        return map.getOriginX();
+    }
+
+    public int getOriginY() {
+        return map.getOriginY();
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    // Entrance nodes in the abstract graph
+    public int getNodeCount() {
+        int count = 0;
+        for (int[] nodes : clusterNodes) {
+            count += nodes.length;
+        }
+        return count;
+    }
+
+    public int getSearches() {
+        return searches;
+    }
+
+    public int getSegmentHits() {
+        return segmentHits;
+    }
+
+    public int getSegmentMisses() {
+        return segmentMisses;
+    }
+
+    public int getClusterRebuilds() {
+        return clusterRebuilds;
+    }
+}
\ No newline at end of file
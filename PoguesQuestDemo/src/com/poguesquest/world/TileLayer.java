@@ -0,0 +1,185 @@
+package com.poguesquest.world;
+
+import com.poguesquest.utils.Camera;
+import com.poguesquest.utils.RenderStats;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Static map layer pre-rendered into fixed-size chunk images. Each frame only the
+// chunks under the camera are drawn. Tiles come from the streamer's loaded chunks, which
+// are replaced rather than changed, so baking on the render thread never races the
+// simulation: an image is re-baked when a chunk it was baked from has been replaced.
+// Only the most recently drawn images are kept, their memory is reused for new ones.
+public class TileLayer {
+    public static final int CHUNK_TILES = 16; // Chunk edge length in tiles, divides ChunkStreamer.CHUNK_TILES
+    private static final int MAX_IMAGES = 32;
+    private static final Color FLOOR_COLOR = new Color(34, 32, 52);
+
+    private final ChunkStreamer world;
+    private final BufferedImage tileset;
+    private final int tileSize;
+    private final ArrayDeque<Image> spareImages = new ArrayDeque<>();
+    private final LinkedHashMap<Long, BakedChunk> chunks;
+    private final TileMap[] sources = new TileMap[5]; // Scratch for render
+    private int bakes; // Number of chunk bakes so far, for profiling
+
+    // A baked image and the streamed chunks it was baked from: its own, then the four around it
+    private static class BakedChunk {
+        final Image image;
+        final TileMap[] sources = new TileMap[5];
+
+        BakedChunk(Image image) {
+            this.image = image;
+        }
+    }
+
+    public TileLayer(ChunkStreamer world, BufferedImage tileset, int tileSize) {
+        this.world = world;
+        this.tileset = tileset;
+        this.tileSize = tileSize;
+        this.chunks = new LinkedHashMap<>(64, 0.75f, true) { // Access order, eldest = least recently drawn
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, BakedChunk> eldest) {
+                if (size() > MAX_IMAGES) {
+                    spareImages.push(eldest.getValue().image);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Forget every baked image, so the next frame bakes again
+    public void invalidate() {
+        for (BakedChunk chunk : chunks.values()) {
+            spareImages.push(chunk.image);
+        }
+        chunks.clear();
+    }
+
+    // Draw the chunks intersecting the camera viewport, in world coordinates. The viewport is
+    // where the camera is drawn this frame, blended by alpha like the translation in Main.
+    public void render(Graphics g, Camera camera, double alpha, RenderStats stats) {
+        int chunkSize = CHUNK_TILES * tileSize;
+        double viewX = camera.getRenderX(alpha);
+        double viewY = camera.getRenderY(alpha);
+        int firstX = Math.floorDiv((int) Math.floor(viewX), chunkSize);
+        int firstY = Math.floorDiv((int) Math.floor(viewY), chunkSize);
+        int lastX = Math.floorDiv((int) Math.ceil(viewX) + camera.getViewWidth(), chunkSize);
+        int lastY = Math.floorDiv((int) Math.ceil(viewY) + camera.getViewHeight(), chunkSize);
+
+        int drawn = 0;
+        for (int cy = firstY; cy <= lastY; cy++) {
+            for (int cx = firstX; cx <= lastX; cx++) {
+                if (!findSources(cx, cy, sources)) {
+                    continue; // Not streamed in yet
+                }
+                long key = ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+                BakedChunk chunk = chunks.get(key);
+                if (chunk == null || !isBakedFrom(chunk, sources)) {
+                    chunk = bake(key, cx, cy, sources);
+                }
+                g.drawImage(chunk.image, cx * chunkSize, cy * chunkSize, null);
+                drawn++;
+            }
+        }
+        // Every loaded streamed chunk covers a square of image chunks; those not drawn were culled
+        int perStreamed = ChunkStreamer.CHUNK_TILES / CHUNK_TILES;
+        stats.countChunks(drawn, Math.max(0, world.getLoadedCount() * perStreamed * perStreamed - drawn));
+    }
+
+    // The streamed chunk holding this image chunk and its four neighbours, false if it isn't loaded
+    private boolean findSources(int cx, int cy, TileMap[] sources) {
+        int perStreamed = ChunkStreamer.CHUNK_TILES / CHUNK_TILES;
+        int streamedX = Math.floorDiv(cx, perStreamed);
+        int streamedY = Math.floorDiv(cy, perStreamed);
+        sources[0] = world.getLoadedChunk(streamedX, streamedY);
+        sources[1] = world.getLoadedChunk(streamedX, streamedY - 1);
+        sources[2] = world.getLoadedChunk(streamedX, streamedY + 1);
+        sources[3] = world.getLoadedChunk(streamedX - 1, streamedY);
+        sources[4] = world.getLoadedChunk(streamedX + 1, streamedY);
+        return sources[0] != null;
+    }
+
+    private static boolean isBakedFrom(BakedChunk chunk, TileMap[] sources) {
+        for (int i = 0; i < sources.length; i++) {
+            if (chunk.sources[i] != sources[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BakedChunk bake(long key, int cx, int cy, TileMap[] sources) {
+        int chunkSize = CHUNK_TILES * tileSize;
+        BakedChunk chunk = chunks.get(key);
+        if (chunk == null) {
+            Image image = spareImages.isEmpty() ? createChunkImage(chunkSize) : spareImages.pop();
+            chunk = new BakedChunk(image);
+            chunks.put(key, chunk);
+        }
+        System.arraycopy(sources, 0, chunk.sources, 0, sources.length);
+
+        Graphics2D g = (Graphics2D) chunk.image.getGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, chunkSize, chunkSize);
+        g.setComposite(AlphaComposite.SrcOver);
+
+        int startX = cx * CHUNK_TILES;
+        int startY = cy * CHUNK_TILES;
+
+        g.setColor(FLOOR_COLOR);
+        for (int y = startY; y < startY + CHUNK_TILES; y++) {
+            for (int x = startX; x < startX + CHUNK_TILES; x++) {
+                int drawX = (x - startX) * tileSize;
+                int drawY = (y - startY) * tileSize;
+
+                if (isWalkable(sources, x, y)) { // Floor
+                    g.fillRect(drawX, drawY, tileSize, tileSize);
+                } else { // Wall
+                    // Pick the wall tile from the floor around it, like WallGenerator.updateWallTypes
+                    int mask = (isWalkable(sources, x, y - 1) ? 1 : 0) | (isWalkable(sources, x, y + 1) ? 2 : 0)
+                            | (isWalkable(sources, x - 1, y) ? 4 : 0) | (isWalkable(sources, x + 1, y) ? 8 : 0);
+                    int tileValue = WallGenerator.getWallTile(mask);
+                    int tilesetX = (tileValue % 4) * tileSize;
+                    int tilesetY = (tileValue / 4) * tileSize;
+
+                    g.drawImage(tileset, drawX, drawY, drawX + tileSize, drawY + tileSize,
+                            tilesetX, tilesetY, tilesetX + tileSize, tilesetY + tileSize, null);
+                }
+            }
+        }
+        g.dispose();
+
+        bakes++;
+        return chunk;
+    }
+
+    // A tile of the image chunk or one step outside it; a missing neighbour counts as wall
+    private static boolean isWalkable(TileMap[] sources, int x, int y) {
+        for (TileMap source : sources) {
+            if (source != null && source.isInside(x, y)) {
+                return source.isWalkableUnchecked(x, y);
+            }
+        }
+        return false;
+    }
+
+    // Use an image compatible with the screen so Java2D can keep it in video memory
+    private static Image createChunkImage(int size) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        }
+        GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        return config.createCompatibleImage(size, size, Transparency.TRANSLUCENT);
+    }
+
+    public int getBakeCount() {
+        return bakes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,261 @@
+package com.poguesquest.world;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// The tile grid. Tile values live in one flat byte array (wall tiles hold their autotile
+// index 0-15, floor holds FLOOR), and walkability is kept separately in a bitset, so a
+// wall whose autotile index happens to equal FLOOR is still a wall. isWalkable is the one
+// wall test everything uses. Bitset rows start on a word boundary, so each row can be
+// written without touching its neighbours' words.
+// All coordinates are world tile coordinates. A map may cover only part of the world, from
+// its origin on; a whole generated map has its origin at 0, 0.
+public class TileMap {
+    public static final int WALL = 0;    // Plain wall, before autotiling picks its index
+    public static final int FLOOR = 1;
+    public static final int UNKNOWN = 2; // Not generated yet, turned into walls
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final byte[] tiles;
+    private final long[] walkable;
+    private int originX;
+    private int originY;
+
+    // A map of plain walls
+    public TileMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.tiles = new byte[width * height];
+        this.walkable = new long[wordsPerRow * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getOriginX() {
+        return originX;
+    }
+
+    public int getOriginY() {
+        return originY;
+    }
+
+    // Move the map over another part of the world. The tiles stay as they are, the caller rewrites them.
+    void setOrigin(int originX, int originY) {
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    public boolean isInside(int x, int y) {
+        x -= originX;
+        y -= originY;
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    // Tile value, no bounds check
+    public int get(int x, int y) {
+        return tiles[(y - originY) * width + (x - originX)];
+    }
+
+    // Set a tile value, it is walkable only if the value is FLOOR. No bounds check.
+    public void set(int x, int y, int value) {
+        x -= originX;
+        y -= originY;
+        tiles[y * width + x] = (byte) value;
+        setWalkable(x, y, value == FLOOR);
+    }
+
+    // Give a wall its autotile index without making it walkable. No bounds check.
+    // The walkable bitset is only written if the tile was floor.
+    public void setWallType(int x, int y, int wallType) {
+        x -= originX;
+        y -= originY;
+        tiles[y * width + x] = (byte) wallType;
+        int word = y * wordsPerRow + (x >>> 6);
+        long bit = 1L << (x & 63);
+        if ((walkable[word] & bit) != 0) {
+            walkable[word] &= ~bit;
+        }
+    }
+
+    // Map coordinates here, not world coordinates
+    private void setWalkable(int x, int y, boolean isWalkable) {
+        int word = y * wordsPerRow + (x >>> 6);
+        long bit = 1L << (x & 63);
+        if (isWalkable) {
+            walkable[word] |= bit;
+        } else {
+            walkable[word] &= ~bit;
+        }
+    }
+
+    // The wall test. Everything outside the map counts as wall.
+    public boolean isWalkable(int x, int y) {
+        x -= originX;
+        y -= originY;
+        return x >= 0 && y >= 0 && x < width && y < height
+                && (walkable[y * wordsPerRow + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    // Same as isWalkable for coordinates known to be inside the map
+    public boolean isWalkableUnchecked(int x, int y) {
+        x -= originX;
+        y -= originY;
+        return (walkable[y * wordsPerRow + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    // True if every tile in the inclusive rectangle is walkable, testing 64 tiles per word
+    public boolean isAreaWalkable(int minX, int minY, int maxX, int maxY) {
+        minX -= originX;
+        maxX -= originX;
+        minY -= originY;
+        maxY -= originY;
+        if (minX < 0 || minY < 0 || maxX >= width || maxY >= height) {
+            return false;
+        }
+        int firstWord = minX >>> 6;
+        int lastWord = maxX >>> 6;
+        long firstMask = -1L << (minX & 63);
+        long lastMask = -1L >>> (63 - (maxX & 63));
+
+        for (int y = minY; y <= maxY; y++) {
+            int row = y * wordsPerRow;
+            if (firstWord == lastWord) {
+                long mask = firstMask & lastMask;
+                if ((walkable[row + firstWord] & mask) != mask) {
+                    return false;
+                }
+                continue;
+            }
+            if ((walkable[row + firstWord] & firstMask) != firstMask) {
+                return false;
+            }
+            for (int word = firstWord + 1; word < lastWord; word++) {
+                if (walkable[row + word] != -1L) {
+                    return false;
+                }
+            }
+            if ((walkable[row + lastWord] & lastMask) != lastMask) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Overwrite this map with another of the same size, origin included
+    public void copyFrom(TileMap other) {
+        System.arraycopy(other.tiles, 0, tiles, 0, tiles.length);
+        System.arraycopy(other.walkable, 0, walkable, 0, walkable.length);
+        originX = other.originX;
+        originY = other.originY;
+    }
+
+    // Copy the part of another map that overlaps this one, at the same world coordinates
+    public void paste(TileMap source) {
+        int minX = Math.max(originX, source.originX);
+        int minY = Math.max(originY, source.originY);
+        int maxX = Math.min(originX + width, source.originX + source.width);
+        int maxY = Math.min(originY + height, source.originY + source.height);
+        for (int y = minY; y < maxY; y++) {
+            int row = (y - originY) * width - originX;
+            int sourceRow = (y - source.originY) * source.width - source.originX;
+            System.arraycopy(source.tiles, sourceRow + minX, tiles, row + minX, maxX - minX);
+            for (int x = minX; x < maxX; x++) {
+                setWalkable(x - originX, y - originY, source.isWalkableUnchecked(x, y));
+            }
+        }
+    }
+
+    // Run-length encoded tiles: pairs of (run length - 1, tile), where the tile byte is the
+    // tile value with the top bit set if it is walkable. Runs follow the rows, top to bottom.
+    public byte[] encodeRuns() {
+        return encodeRuns(originX, originY, width, height);
+    }
+
+    // Runs for a rectangle of the world, tiles outside this map encoded as plain wall
+    public byte[] encodeRuns(int minX, int minY, int areaWidth, int areaHeight) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        int run = 0;
+        int previous = -1;
+        for (int y = minY; y < minY + areaHeight; y++) {
+            for (int x = minX; x < minX + areaWidth; x++) {
+                int tile = isInside(x, y) ? encodeTile(x - originX, y - originY) : WALL;
+                if (tile != previous || run == 256) {
+                    if (run > 0) {
+                        out.write(run - 1);
+                        out.write(previous);
+                    }
+                    previous = tile;
+                    run = 0;
+                }
+                run++;
+            }
+        }
+        out.write(run - 1);
+        out.write(previous);
+        return out.toByteArray();
+    }
+
+    // Overwrite this map from encodeRuns output of a map of the same size
+    public void decodeRuns(byte[] runs) {
+        decodeRuns(ByteBuffer.wrap(runs), 0, runs.length);
+    }
+
+    // Same, reading length bytes of runs at offset with absolute gets, so the buffer may be shared
+    public void decodeRuns(ByteBuffer runs, int offset, int length) {
+        int i = 0;
+        for (int r = offset; r < offset + length; r += 2) {
+            int run = (runs.get(r) & 0xFF) + 1;
+            int tile = runs.get(r + 1) & 0xFF;
+            if (i + run > tiles.length) {
+                break;
+            }
+            for (int end = i + run; i < end; i++) {
+                tiles[i] = (byte) (tile & 0x7F);
+                setWalkable(i % width, i / width, (tile & 0x80) != 0);
+            }
+        }
+        if (i != tiles.length) {
+            throw new IllegalArgumentException("Runs don't cover the " + tiles.length + " tiles of the map");
+        }
+    }
+
+    // Map coordinates here, not world coordinates
+    private int encodeTile(int x, int y) {
+        boolean isWalkable = (walkable[y * wordsPerRow + (x >>> 6)] & (1L << (x & 63))) != 0;
+        return (tiles[y * width + x] & 0x7F) | (isWalkable ? 0x80 : 0);
+    }
+
+    public int countWalkable() {
+        int count = 0;
+        for (long word : walkable) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Heap used by the tile data, for comparing against the old int[][] layout
+    public long getMemoryBytes() {
+        return tiles.length + walkable.length * 8L;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof TileMap map && width == map.width && height == map.height
+                && originX == map.originX && originY == map.originY && Arrays.equals(tiles, map.tiles) && Arrays.equals(walkable, map.walkable);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(tiles) + Arrays.hashCode(walkable);
+    }
+}
\ No newline at end of file
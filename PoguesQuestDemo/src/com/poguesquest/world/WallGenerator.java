@@ -2,12 +2,12 @@ package com.poguesquest.world;
 
 
 public class WallGenerator {
-    private final int[][] map;
+    private final TileMap map;
     private final int width;
     private final int height;
 
     // Constructor to initialize the wall generator with the map dimensions and map grid
-    public WallGenerator(int width, int height, int[][] map) {
+    public WallGenerator(int width, int height, TileMap map) {
         this.width = width;
         this.height = height;
         this.map = map;
@@ -15,11 +15,16 @@ public class WallGenerator {
 
     // Method to initialize the map with walls while respecting pre-existing tiles
     public void generateWalls() {
+        generateWalls(0, height);
+    }
+
+    // Same for rows minY (inclusive) to maxY (exclusive) only
+    public void generateWalls(int minY, int maxY) {
         // Set all empty tiles (2 = unknown) to walls (0 = wall)
-        for (int y = 0; y < height; y++) {
+        for (int y = minY; y < maxY; y++) {
             for (int x = 0; x < width; x++) {
-                if (map[y][x] == 2) {
-                    map[y][x] = 0;
+                if (map.get(x, y) == TileMap.UNKNOWN) {
+                    map.set(x, y, TileMap.WALL);
                 }
             }
         }
@@ -27,11 +32,17 @@ public class WallGenerator {
 
     // Method to update wall types based on neighboring tiles using the blob tile system
     public void updateWallTypes() {
-        for (int y = 0; y < height; y++) {
+        updateWallTypes(0, height);
+    }
+
+    // Same for rows minY to maxY only. Reads the walkability of the rows either side but never
+    // writes it, so bands of rows can be typed in parallel.
+    public void updateWallTypes(int minY, int maxY) {
+        for (int y = minY; y < maxY; y++) {
             for (int x = 0; x < width; x++) {
-                if (map[y][x] == 0) { // If the current tile is a wall
+                if (!map.isWalkableUnchecked(x, y)) { // If the current tile is a wall
                     int binaryRepresentation = getBinaryRepresentation(x, y);
-                    map[y][x] = getWallTile(binaryRepresentation);
+                    map.setWallType(x, y, getWallTile(binaryRepresentation));
                 }
             }
         }
@@ -41,17 +52,18 @@ public class WallGenerator {
     private int getBinaryRepresentation(int x, int y) {
         int binaryRepresentation = 0;
 
-        // Check the four cardinal directions for floor tiles and set bits accordingly
-        if (y > 0 && map[y - 1][x] == 1) binaryRepresentation |= 1; // Top neighbor
-        if (y < height - 1 && map[y + 1][x] == 1) binaryRepresentation |= 2; // Bottom neighbor
-        if (x > 0 && map[y][x - 1] == 1) binaryRepresentation |= 4; // Left neighbor
-        if (x < width - 1 && map[y][x + 1] == 1) binaryRepresentation |= 8; // Right neighbor
+        // Check the four cardinal directions for floor tiles and set bits accordingly.
+        // Walkability is separate from the tile value, so walls typed earlier in this pass never read as floor.
+        if (map.isWalkable(x, y - 1)) binaryRepresentation |= 1; // Top neighbor
+        if (map.isWalkable(x, y + 1)) binaryRepresentation |= 2; // Bottom neighbor
+        if (map.isWalkable(x - 1, y)) binaryRepresentation |= 4; // Left neighbor
+        if (map.isWalkable(x + 1, y)) binaryRepresentation |= 8; // Right neighbor
 
         return binaryRepresentation;
     }
 
     // Translate binary representation to tileset index using the blob tile system
-    int getWallTile(int binaryRepresentation) {
+    static int getWallTile(int binaryRepresentation) {
         return switch (binaryRepresentation) {
             case 0b0101 -> 0;
             case 0b0111 -> 1; 
@@ -73,16 +85,11 @@ public class WallGenerator {
         };
     }
 
-    // Helper method to check if a tile is a wall
-    public boolean isWall(int tile) {
-        return tile == 0;
-    }
-
     // Method to print a variant of floor for debugging
     public void printFloorVariant() {
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
-                if (map[y][x] == 1) {
+                if (map.isWalkable(x, y)) {
                     System.out.print('.'); // Floor
                 } else {
                     System.out.print('#'); // Wall